@@ -0,0 +1,87 @@
+package edu.touro.mco152.bm;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of the work done for every block and every mark besides the I/O
+ * itself. Each benchmark is one piece of that work, so a change that makes a
+ * piece slower shows up here long before it shows up as lower bandwidth on a
+ * fast device. Times are per block unless the name says mark.
+ */
+@State(Scope.Thread)
+public class BlockOverheadBenchmark {
+    
+    static final int NUM_BLOCKS = 32;
+    static final int BLOCK_SIZE = 512 * App.KILOBYTE;
+    
+    private final IoStats stats = new IoStats();
+    private final AtomicLongArray blocksComplete = new AtomicLongArray(1);
+    private long latencyNs = 1;
+    
+    @Setup(Level.Iteration)
+    public void setUp() {
+        stats.reset();
+        blocksComplete.set(0, 0);
+        App.resetTestData();
+    }
+    
+    /**
+     * The random block position the original worker drew for every block,
+     * with a new Random each time.
+     */
+    @Benchmark
+    public int randInt() {
+        return Util.randInt(0, NUM_BLOCKS - 1);
+    }
+    
+    /**
+     * Reading the clock before and after a block to time it.
+     */
+    @Benchmark
+    public long timeBlock() {
+        long blockStart = System.nanoTime();
+        return System.nanoTime() - blockStart;
+    }
+    
+    /**
+     * Counting a completed block and recording its latency, as every slot of
+     * QueuedIoRunner does.
+     */
+    @Benchmark
+    public void countBlock() {
+        stats.getLatency().record(latencyNs);
+        stats.addBlock(BLOCK_SIZE);
+        // vary the latency so the same histogram bucket is not hit every time
+        latencyNs = (latencyNs * 31 + 7) & 0xFFFFF;
+    }
+    
+    /**
+     * All a slot does to report progress, bumping a counter only it writes.
+     * The percentage is worked out on the ProgressReporter's thread.
+     */
+    @Benchmark
+    public void countProgress() {
+        blocksComplete.lazySet(0, blocksComplete.get(0) + 1);
+    }
+    
+    /**
+     * Filling in a finished mark and adding it to the cumulative metrics.
+     */
+    @Benchmark
+    public DiskMark completeMark() {
+        DiskMark mark = new DiskMark(DiskMark.MarkType.WRITE);
+        mark.setMarkNum(1);
+        mark.setBytes(stats.getBytes());
+        mark.setElapsedNs(1000000);
+        mark.setBwMbSec(NUM_BLOCKS * 512 / 1000.0);
+        mark.setLatencies(stats.getLatency());
+        App.updateMetrics(mark);
+        return mark;
+    }
+}
@@ -0,0 +1,107 @@
+package edu.touro.mco152.bm;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import edu.touro.mco152.bm.io.IOEngine;
+import edu.touro.mco152.bm.pattern.SequentialPattern;
+import edu.touro.mco152.bm.persist.DiskRun;
+
+/**
+ * Time per block of each I/O engine against a file in memory, /dev/shm by
+ * default or the directory in the jdm.jmh.dir property, so the device does
+ * not hide what the engine costs. engine calls the engine directly and
+ * runner goes through QueuedIoRunner the way a mark does, the difference
+ * between the two is what the runner adds to every block.
+ *
+ * DIRECT_IO is left out of the defaults since tmpfs does not support
+ * O_DIRECT, it can be added with -p engineType=DIRECT_IO and a jdm.jmh.dir on a
+ * real file system.
+ */
+@State(Scope.Thread)
+public class EngineBenchmark {
+    
+    static final int NUM_BLOCKS = 64;
+    
+    @Param({"RANDOM_ACCESS_FILE", "FILE_CHANNEL", "MEMORY_MAPPED", "ASYNC_FILE_CHANNEL"})
+    public DiskRun.EngineType engineType;
+    
+    @Param({"4", "512"})
+    public int blockSizeKb;
+    
+    /** 0 writes every block, 100 reads every block */
+    @Param({"0", "100"})
+    public int readPercent;
+    
+    private File file;
+    private int blockSize;
+    private IOEngine engine;
+    private ByteBuffer buffer;
+    private QueuedIoRunner runner;
+    private int[] blocks;
+    private final IoStats readStats = new IoStats();
+    private final IoStats writeStats = new IoStats();
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        File dir = new File(System.getProperty("jdm.jmh.dir", "/dev/shm"));
+        if (!dir.isDirectory()) {
+            dir = new File(System.getProperty("java.io.tmpdir"));
+        }
+        App.dataDir = dir;
+        blockSize = blockSizeKb * App.KILOBYTE;
+        file = File.createTempFile("jdm-jmh", ".jdm", dir);
+        file.deleteOnExit();
+        byte[] data = new byte[blockSize];
+        Util.fillFile(file, (long) blockSize * NUM_BLOCKS, data);
+        
+        engine = IOEngine.create(engineType);
+        buffer = engine.allocateBuffer(blockSize);
+        runner = new QueuedIoRunner(engineType, 1, 1, App.queueDepth,
+                new ByteBuffer[] {ByteBuffer.wrap(data)});
+        blocks = new SequentialPattern().generate(NUM_BLOCKS, 0);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        runner.shutdown();
+        file.delete();
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(NUM_BLOCKS)
+    public void engine() throws IOException {
+        engine.open(file, readPercent < 100, DiskRun.SyncPolicy.NONE);
+        try {
+            for (int b=0; b<NUM_BLOCKS; b++) {
+                long position = (long) blocks[b] * blockSize;
+                if (readPercent == 100) {
+                    engine.read(position, buffer);
+                } else {
+                    engine.write(position, buffer);
+                }
+            }
+        } finally {
+            engine.close();
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(NUM_BLOCKS)
+    public long runner() throws IOException, InterruptedException {
+        readStats.reset();
+        writeStats.reset();
+        runner.runMark(file, readPercent, blocks, readStats, writeStats, () -> false);
+        return runner.getBlocksComplete();
+    }
+}
@@ -16,7 +16,10 @@ import javax.swing.SwingWorker.StateValue;
 import javax.swing.UIManager;
 import javax.swing.UIManager.LookAndFeelInfo;
 
+import edu.touro.mco152.bm.cli.Cli;
 import edu.touro.mco152.bm.persist.DiskRun;
+import edu.touro.mco152.bm.persist.RunStore;
+import edu.touro.mco152.bm.ui.EventLogView;
 import edu.touro.mco152.bm.ui.Gui;
 import edu.touro.mco152.bm.ui.MainFrame;
 import edu.touro.mco152.bm.ui.SelectFrame;
@@ -49,26 +52,66 @@ public class App {
     public static boolean autoRemoveData = false;
     public static boolean autoReset = true;
     public static boolean showMaxMin = true;
-    public static boolean writeSyncEnable = true;
+    public static DiskRun.SyncPolicy syncPolicy = DiskRun.SyncPolicy.O_DSYNC;
+    public static int syncEvery = 16;       // blocks between forces of the FORCE policies
+    public static int parallelFiles = 1;    // files run at the same time with multiFile
+    public static DiskRun.PreallocMode preallocation = DiskRun.PreallocMode.NONE;
+    public static DiskRun.DataMode dataMode = DiskRun.DataMode.REPEATING;
+    public static double compressRatio = 2; // target ratio of COMPRESSIBLE data
+    public static int bufferPool = 16;      // distinct blocks written in turn
+    public static boolean verifyData = false; // stamp written blocks and check them on read
+    public static boolean logToFile = false; // events also go to jdm-events.log in APP_CACHE_DIR
+    public static int logFileKb = 1024;     // size the log file is rotated at
+    public static int logLines = 5000;      // lines kept in the event view
     
     // run configuration
     public static boolean readTest = false;
     public static boolean writeTest = true;
+    public static boolean mixedTest = false;
+    public static boolean metadataTest = false;
+    public static int metaFiles = 20000;     // small files of the metadata test
+    public static int metaFileSize = 4096;   // bytes in each of them
+    public static int metaFilesPerDir = 1000;
     public static DiskRun.BlockSequence blockSequence = DiskRun.BlockSequence.SEQUENTIAL;
+    public static long randomSeed = 0;      // block order seed, 0 for a new one each run
+    public static int blockStride = 8;      // blocks between STRIDED accesses
+    public static double zipfTheta = 0.99;  // skew of ZIPFIAN accesses
+    public static DiskRun.EngineType ioEngine = DiskRun.EngineType.RANDOM_ACCESS_FILE;
     public static int numOfMarks = 25;      // desired number of marks
+    public static int markTimeMs = 0;       // target time per mark, 0 for fixed size marks
+    public static int runTimeSec = 0;       // time limit per run, 0 for none
+    public static int warmupMarks = 0;      // leading marks left out of the metrics
+    public static int steadyWindow = 5;     // marks the steady state is judged over
+    public static double steadyCov = 0.05;  // variation of a steady window
+    public static boolean waitForSteady = false; // marks before steady state are warm-up
+    public static double ciTargetPercent = 0; // stop at this 95% CI of the mean, 0 for never
+    public static int sampleMs = 100;       // throughput sample interval, 0 for none
     public static int numOfBlocks = 32;     // desired number of blocks
     public static int blockSizeKb = 512;    // size of a block in KBs
+    public static int mmapWindowMb = 64;    // size of a memory mapped window
+    public static int numOfThreads = 1;     // concurrent I/O workers
+    public static int queueDepth = 1;       // requests in flight per worker
+    public static int readPercent = 70;     // share of reads in a mixed test
     
+    public static final EventLog eventLog = new EventLog(EventLog.DEFAULT_CAPACITY);
+    public static final RunStore runStore = new RunStore(RunStore.DEFAULT_CAPACITY);
     public static DiskWorker worker = null;
     public static int nextMarkNumber = 1;   // number of the next mark
     public static double wMax = -1, wMin = -1, wAvg = -1;
     public static double rMax = -1, rMin = -1, rAvg = -1;
+    public static int wCount = 0, rCount = 0; // marks in the metrics above
     
     /**
      * @param args the command line arguments
      */
     public static void main(String args[]) {
         
+        // with arguments run headless, see Cli
+        if (args.length > 0) {
+            Cli.main(args);
+            return;
+        }
+        
         /* Set the Nimbus look and feel */
         try {
             for (LookAndFeelInfo info : UIManager.getInstalledLookAndFeels()) {
@@ -119,6 +162,7 @@ public class App {
         Gui.selFrame = new SelectFrame();
         p = new Properties();
         loadConfig();
+        startEventLog(new EventLogView(Gui.mainFrame.getMsgTextArea(), logLines));
         System.out.println(App.getConfigString());
         Gui.mainFrame.refreshConfig();
         Gui.mainFrame.setLocationRelativeTo(null);
@@ -133,9 +177,22 @@ public class App {
         // save configuration on exit...
         Runtime.getRuntime().addShutdownHook(new Thread() {
             @Override
-            public void run() { App.saveConfig(); }
+            public void run() { App.saveConfig(); runStore.shutdown(); eventLog.shutdown(); }
         });
     }
+    
+    /**
+     * Send the log events to the given view, and to the log file if
+     * logToFile is set.
+     * @param view shows the events to the user
+     */
+    public static void startEventLog(EventLog.Sink view) {
+        eventLog.addSink(view);
+        if (logToFile) {
+            eventLog.addSink(new RotatingFileSink(new File(APP_CACHE_DIR, "jdm-events.log"),
+                    (long) logFileKb * KILOBYTE, RotatingFileSink.DEFAULT_KEEP_FILES));
+        }
+    }
     //configering loading
     public static void loadConfig() {
         File pFile = new File(PROPERTIESFILE);
@@ -148,21 +205,62 @@ public class App {
         } catch (IOException ex) {
             Logger.getLogger(App.class.getName()).log(Level.SEVERE, null, ex);
         }
+        applyConfig();
+    }
+    
+    /**
+     * Set the configuration fields from the properties in p, fields without
+     * a property keep their current value.
+     * @throws IllegalArgumentException if a value can not be parsed
+     */
+    public static void applyConfig() {
         String value;
         value = p.getProperty("locationDir", System.getProperty("user.home"));
         locationDir = new File(value);        
         value = p.getProperty("multiFile", String.valueOf(multiFile));
         multiFile = Boolean.valueOf(value);
+        value = p.getProperty("parallelFiles", String.valueOf(parallelFiles));
+        parallelFiles = Integer.valueOf(value);
         value = p.getProperty("autoRemoveData", String.valueOf(autoRemoveData));
         autoRemoveData = Boolean.valueOf(value);
         value = p.getProperty("autoReset", String.valueOf(autoReset));
         autoReset = Boolean.valueOf(value);
         value = p.getProperty("blockSequence", String.valueOf(blockSequence));
         blockSequence = DiskRun.BlockSequence.valueOf(value);
+        value = p.getProperty("randomSeed", String.valueOf(randomSeed));
+        randomSeed = Long.valueOf(value);
+        value = p.getProperty("blockStride", String.valueOf(blockStride));
+        blockStride = Integer.valueOf(value);
+        value = p.getProperty("zipfTheta", String.valueOf(zipfTheta));
+        zipfTheta = Double.valueOf(value);
+        value = p.getProperty("ioEngine", String.valueOf(ioEngine));
+        ioEngine = DiskRun.EngineType.valueOf(value);
         value = p.getProperty("showMaxMin", String.valueOf(showMaxMin));
         showMaxMin = Boolean.valueOf(value);
         value = p.getProperty("numOfFiles", String.valueOf(numOfMarks));
         numOfMarks = Integer.valueOf(value);
+        value = p.getProperty("markTimeMs", String.valueOf(markTimeMs));
+        markTimeMs = Integer.valueOf(value);
+        value = p.getProperty("runTimeSec", String.valueOf(runTimeSec));
+        runTimeSec = Integer.valueOf(value);
+        value = p.getProperty("warmupMarks", String.valueOf(warmupMarks));
+        warmupMarks = Integer.valueOf(value);
+        value = p.getProperty("steadyWindow", String.valueOf(steadyWindow));
+        steadyWindow = Integer.valueOf(value);
+        value = p.getProperty("steadyCov", String.valueOf(steadyCov));
+        steadyCov = Double.valueOf(value);
+        value = p.getProperty("waitForSteady", String.valueOf(waitForSteady));
+        waitForSteady = Boolean.valueOf(value);
+        value = p.getProperty("ciTargetPercent", String.valueOf(ciTargetPercent));
+        ciTargetPercent = Double.valueOf(value);
+        value = p.getProperty("sampleMs", String.valueOf(sampleMs));
+        sampleMs = Integer.valueOf(value);
+        value = p.getProperty("logToFile", String.valueOf(logToFile));
+        logToFile = Boolean.valueOf(value);
+        value = p.getProperty("logFileKb", String.valueOf(logFileKb));
+        logFileKb = Integer.valueOf(value);
+        value = p.getProperty("logLines", String.valueOf(logLines));
+        logLines = Integer.valueOf(value);
         value = p.getProperty("numOfBlocks", String.valueOf(numOfBlocks));
         numOfBlocks = Integer.valueOf(value);
         value = p.getProperty("blockSizeKb", String.valueOf(blockSizeKb));
@@ -171,23 +269,102 @@ public class App {
         writeTest = Boolean.valueOf(value);
         value = p.getProperty("readTest", String.valueOf(readTest));
         readTest = Boolean.valueOf(value);
-        value = p.getProperty("writeSyncEnable", String.valueOf(writeSyncEnable));
-        writeSyncEnable = Boolean.valueOf(value);
+        value = p.getProperty("mixedTest", String.valueOf(mixedTest));
+        mixedTest = Boolean.valueOf(value);
+        value = p.getProperty("metadataTest", String.valueOf(metadataTest));
+        metadataTest = Boolean.valueOf(value);
+        value = p.getProperty("metaFiles", String.valueOf(metaFiles));
+        metaFiles = Integer.valueOf(value);
+        value = p.getProperty("metaFileSize", String.valueOf(metaFileSize));
+        metaFileSize = Integer.valueOf(value);
+        value = p.getProperty("metaFilesPerDir", String.valueOf(metaFilesPerDir));
+        metaFilesPerDir = Integer.valueOf(value);
+        value = p.getProperty("readPercent", String.valueOf(readPercent));
+        readPercent = Integer.valueOf(value);
+        // older files only say whether writes were synchronous
+        value = p.getProperty("writeSyncEnable");
+        if (value != null) {
+            syncPolicy = Boolean.valueOf(value) ? DiskRun.SyncPolicy.O_DSYNC
+                    : DiskRun.SyncPolicy.NONE;
+        }
+        value = p.getProperty("syncPolicy", String.valueOf(syncPolicy));
+        syncPolicy = DiskRun.SyncPolicy.valueOf(value);
+        value = p.getProperty("syncEvery", String.valueOf(syncEvery));
+        syncEvery = Integer.valueOf(value);
+        value = p.getProperty("preallocation", String.valueOf(preallocation));
+        preallocation = DiskRun.PreallocMode.valueOf(value);
+        value = p.getProperty("dataMode", String.valueOf(dataMode));
+        dataMode = DiskRun.DataMode.valueOf(value);
+        value = p.getProperty("compressRatio", String.valueOf(compressRatio));
+        compressRatio = Double.valueOf(value);
+        value = p.getProperty("bufferPool", String.valueOf(bufferPool));
+        bufferPool = Integer.valueOf(value);
+        value = p.getProperty("verifyData", String.valueOf(verifyData));
+        verifyData = Boolean.valueOf(value);
+        value = p.getProperty("mmapWindowMb", String.valueOf(mmapWindowMb));
+        mmapWindowMb = Integer.valueOf(value);
+        value = p.getProperty("numOfThreads", String.valueOf(numOfThreads));
+        numOfThreads = Integer.valueOf(value);
+        value = p.getProperty("queueDepth", String.valueOf(queueDepth));
+        queueDepth = Integer.valueOf(value);
     }
     //configering saving
+    /**
+     * Put every configuration field into props under its property name.
+     * @param props the properties to fill
+     */
+    public static void putConfig(Properties props) {
+        if (locationDir != null) {
+            props.setProperty("locationDir", locationDir.getAbsolutePath());
+        }
+        props.setProperty("multiFile", String.valueOf(multiFile));
+        props.setProperty("parallelFiles", String.valueOf(parallelFiles));
+        props.setProperty("autoRemoveData", String.valueOf(autoRemoveData));
+        props.setProperty("autoReset", String.valueOf(autoReset));
+        props.setProperty("blockSequence", String.valueOf(blockSequence));
+        props.setProperty("randomSeed", String.valueOf(randomSeed));
+        props.setProperty("blockStride", String.valueOf(blockStride));
+        props.setProperty("zipfTheta", String.valueOf(zipfTheta));
+        props.setProperty("ioEngine", String.valueOf(ioEngine));
+        props.setProperty("showMaxMin", String.valueOf(showMaxMin));
+        props.setProperty("numOfFiles", String.valueOf(numOfMarks));
+        props.setProperty("markTimeMs", String.valueOf(markTimeMs));
+        props.setProperty("runTimeSec", String.valueOf(runTimeSec));
+        props.setProperty("warmupMarks", String.valueOf(warmupMarks));
+        props.setProperty("steadyWindow", String.valueOf(steadyWindow));
+        props.setProperty("steadyCov", String.valueOf(steadyCov));
+        props.setProperty("waitForSteady", String.valueOf(waitForSteady));
+        props.setProperty("ciTargetPercent", String.valueOf(ciTargetPercent));
+        props.setProperty("sampleMs", String.valueOf(sampleMs));
+        props.setProperty("logToFile", String.valueOf(logToFile));
+        props.setProperty("logFileKb", String.valueOf(logFileKb));
+        props.setProperty("logLines", String.valueOf(logLines));
+        props.setProperty("numOfBlocks", String.valueOf(numOfBlocks));
+        props.setProperty("blockSizeKb", String.valueOf(blockSizeKb));
+        props.setProperty("writeTest", String.valueOf(writeTest));
+        props.setProperty("readTest", String.valueOf(readTest));
+        props.setProperty("mixedTest", String.valueOf(mixedTest));
+        props.setProperty("metadataTest", String.valueOf(metadataTest));
+        props.setProperty("metaFiles", String.valueOf(metaFiles));
+        props.setProperty("metaFileSize", String.valueOf(metaFileSize));
+        props.setProperty("metaFilesPerDir", String.valueOf(metaFilesPerDir));
+        props.setProperty("readPercent", String.valueOf(readPercent));
+        props.remove("writeSyncEnable");
+        props.setProperty("syncPolicy", String.valueOf(syncPolicy));
+        props.setProperty("syncEvery", String.valueOf(syncEvery));
+        props.setProperty("preallocation", String.valueOf(preallocation));
+        props.setProperty("dataMode", String.valueOf(dataMode));
+        props.setProperty("compressRatio", String.valueOf(compressRatio));
+        props.setProperty("bufferPool", String.valueOf(bufferPool));
+        props.setProperty("verifyData", String.valueOf(verifyData));
+        props.setProperty("mmapWindowMb", String.valueOf(mmapWindowMb));
+        props.setProperty("numOfThreads", String.valueOf(numOfThreads));
+        props.setProperty("queueDepth", String.valueOf(queueDepth));
+
+    }
+    
     public static void saveConfig() {
-        p.setProperty("locationDir", App.locationDir.getAbsolutePath());
-        p.setProperty("multiFile", String.valueOf(multiFile));
-        p.setProperty("autoRemoveData", String.valueOf(autoRemoveData));
-        p.setProperty("autoReset", String.valueOf(autoReset));
-        p.setProperty("blockSequence", String.valueOf(blockSequence));
-        p.setProperty("showMaxMin", String.valueOf(showMaxMin));
-        p.setProperty("numOfFiles", String.valueOf(numOfMarks));
-        p.setProperty("numOfBlocks", String.valueOf(numOfBlocks));
-        p.setProperty("blockSizeKb", String.valueOf(blockSizeKb));
-        p.setProperty("writeTest", String.valueOf(writeTest));
-        p.setProperty("readTest", String.valueOf(readTest));
-        p.setProperty("writeSyncEnable", String.valueOf(writeSyncEnable));
+        putConfig(p);
         
         try {
             OutputStream out = new FileOutputStream(new File(PROPERTIESFILE));
@@ -209,36 +386,71 @@ public class App {
         sb.append("Config for Java Disk Mark ").append(getVersion()).append('\n');
         sb.append("readTest: ").append(readTest).append('\n');
         sb.append("writeTest: ").append(writeTest).append('\n');
+        sb.append("mixedTest: ").append(mixedTest).append('\n');
+        sb.append("metadataTest: ").append(metadataTest).append('\n');
+        sb.append("metaFiles: ").append(metaFiles).append('\n');
+        sb.append("metaFileSize: ").append(metaFileSize).append('\n');
+        sb.append("metaFilesPerDir: ").append(metaFilesPerDir).append('\n');
+        sb.append("readPercent: ").append(readPercent).append('\n');
         sb.append("locationDir: ").append(locationDir).append('\n');
         sb.append("multiFile: ").append(multiFile).append('\n');
+        sb.append("parallelFiles: ").append(parallelFiles).append('\n');
+        sb.append("preallocation: ").append(preallocation).append('\n');
+        sb.append("syncPolicy: ").append(syncPolicy).append('\n');
+        sb.append("syncEvery: ").append(syncEvery).append('\n');
+        sb.append("dataMode: ").append(dataMode).append('\n');
+        sb.append("compressRatio: ").append(compressRatio).append('\n');
+        sb.append("bufferPool: ").append(bufferPool).append('\n');
+        sb.append("verifyData: ").append(verifyData).append('\n');
         sb.append("autoRemoveData: ").append(autoRemoveData).append('\n');
         sb.append("autoReset: ").append(autoReset).append('\n');
         sb.append("blockSequence: ").append(blockSequence).append('\n');
+        sb.append("randomSeed: ").append(randomSeed).append('\n');
+        sb.append("blockStride: ").append(blockStride).append('\n');
+        sb.append("zipfTheta: ").append(zipfTheta).append('\n');
+        sb.append("ioEngine: ").append(ioEngine).append('\n');
         sb.append("showMaxMin: ").append(showMaxMin).append('\n');
         sb.append("numOfFiles: ").append(numOfMarks).append('\n');
+        sb.append("markTimeMs: ").append(markTimeMs).append('\n');
+        sb.append("runTimeSec: ").append(runTimeSec).append('\n');
+        sb.append("warmupMarks: ").append(warmupMarks).append('\n');
+        sb.append("steadyWindow: ").append(steadyWindow).append('\n');
+        sb.append("steadyCov: ").append(steadyCov).append('\n');
+        sb.append("waitForSteady: ").append(waitForSteady).append('\n');
+        sb.append("ciTargetPercent: ").append(ciTargetPercent).append('\n');
+        sb.append("sampleMs: ").append(sampleMs).append('\n');
+        sb.append("logToFile: ").append(logToFile).append('\n');
+        sb.append("logFileKb: ").append(logFileKb).append('\n');
+        sb.append("logLines: ").append(logLines).append('\n');
         sb.append("numOfBlocks: ").append(numOfBlocks).append('\n');
         sb.append("blockSizeKb: ").append(blockSizeKb).append('\n');
+        sb.append("mmapWindowMb: ").append(mmapWindowMb).append('\n');
+        sb.append("numOfThreads: ").append(numOfThreads).append('\n');
+        sb.append("queueDepth: ").append(queueDepth).append('\n');
         return sb.toString();
     }
     
     public static void loadSavedRuns() {
-        Gui.runPanel.clearTable();
-        
-        // populate run table with saved runs from db
-        System.out.println("loading stored run data");
-        DiskRun.findAll().stream().forEach((DiskRun run) -> {
-            Gui.runPanel.addRun(run);
-        });
+        // the run table reads the stored runs a page at a time as it shows
+        // them, so this returns before any of them are read
+        Gui.runPanel.reload();
     }
     
     public static void clearSavedRuns() {
+        // runs still on their way to the database would survive the delete
+        runStore.flush();
         DiskRun.deleteAll();
         
         loadSavedRuns();
     }
     
+    /**
+     * Log a message for the user, it is shown a little later by the event
+     * log's own thread.
+     * @param message the text
+     */
     public static void msg(String message) {
-        Gui.mainFrame.msg(message);
+        eventLog.log(message);
     }
     
     public static void cancelBenchmark() {
@@ -291,8 +503,6 @@ public class App {
                 case "progress":
                     int value = (Integer)event.getNewValue();
                     Gui.progressBar.setValue(value);
-                    long kbProcessed = (value) * App.targetTxSizeKb() / 100;
-                    Gui.progressBar.setString(String.valueOf(kbProcessed)+" / "+String.valueOf(App.targetTxSizeKb()));
                     break;
                 case "state":
                     switch ((StateValue) event.getNewValue()) {
@@ -313,11 +523,16 @@ public class App {
     }
     
     public static long targetTxSizeKb() {
-        return blockSizeKb * numOfBlocks * numOfMarks;
+        return (long) blockSizeKb * numOfBlocks * numOfMarks;
     }
     
     public static void updateMetrics(DiskMark mark) {
+        if (mark.isWarmup()) {
+            // charted on their own but not part of the metrics
+            return;
+        }
         if (mark.type==DiskMark.MarkType.WRITE) {
+            wCount++;
             if (wMax==-1 || wMax < mark.getBwMbSec()) {
                 wMax = mark.getBwMbSec();
             }
@@ -327,13 +542,14 @@ public class App {
             if (wAvg==-1) {
                 wAvg = mark.getBwMbSec();
             } else {
-                int n = mark.getMarkNum();
+                int n = wCount;
                 wAvg = (((double)(n-1)*wAvg)+mark.getBwMbSec())/(double)n;
             }
             mark.setCumAvg(wAvg);
             mark.setCumMax(wMax);
             mark.setCumMin(wMin);
         } else {
+            rCount++;
             if (rMax==-1 || rMax < mark.getBwMbSec()) {
                 rMax = mark.getBwMbSec();
             }
@@ -343,7 +559,7 @@ public class App {
             if (rAvg==-1) {
                 rAvg = mark.getBwMbSec();
             } else {
-                int n = mark.getMarkNum();
+                int n = rCount;
                 rAvg = (((double)(n-1)*rAvg)+mark.getBwMbSec())/(double)n;
             }
             mark.setCumAvg(rAvg);
@@ -364,5 +580,7 @@ public class App {
         rAvg = -1;
         rMax = -1;
         rMin = -1;
+        wCount = 0;
+        rCount = 0;
     }
 }
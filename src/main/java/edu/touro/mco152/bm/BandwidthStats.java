@@ -0,0 +1,77 @@
+package edu.touro.mco152.bm;
+
+/**
+ * Running mean and variance of mark bandwidths (Welford's method) with the
+ * 95% confidence interval of the mean, used to stop a run once its result
+ * is precise enough.
+ */
+public class BandwidthStats {
+
+    /** two sided 95% Student t quantiles for 1 to 30 degrees of freedom */
+    static final double[] T95 = {
+        12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+        2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+        2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042
+    };
+    static final double Z95 = 1.959964;
+
+    private int count = 0;
+    private double mean = 0;
+    private double m2 = 0;
+
+    public void add(double bwMbSec) {
+        count++;
+        double delta = bwMbSec - mean;
+        mean += delta / count;
+        m2 += delta * (bwMbSec - mean);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * @return sample standard deviation, 0 for fewer than two marks
+     */
+    public double getStdDev() {
+        return count < 2 ? 0 : Math.sqrt(m2 / (count - 1));
+    }
+
+    /**
+     * @return half width of the 95% confidence interval of the mean in
+     * MB/s, or NaN for fewer than two marks
+     */
+    public double getHalfWidth() {
+        if (count < 2) {
+            return Double.NaN;
+        }
+        return t95(count - 1) * getStdDev() / Math.sqrt(count);
+    }
+
+    /**
+     * @return half width of the 95% confidence interval as a percentage of
+     * the mean, or NaN if it is not known yet
+     */
+    public double getHalfWidthPercent() {
+        return mean == 0 ? Double.NaN : getHalfWidth() / mean * 100;
+    }
+
+    /**
+     * Two sided 95% quantile of Student's t distribution. Beyond the table
+     * a Cornish-Fisher expansion around the normal quantile is used, which
+     * is good to three decimals from 30 degrees of freedom on.
+     */
+    static double t95(int df) {
+        if (df <= T95.length) {
+            return T95[df - 1];
+        }
+        double z = Z95;
+        double z3 = z*z*z;
+        double z5 = z3*z*z;
+        return z + (z3 + z) / (4 * df) + (5*z5 + 16*z3 + 3*z) / (96.0 * df * df);
+    }
+}
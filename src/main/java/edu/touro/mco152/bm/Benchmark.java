@@ -0,0 +1,806 @@
+
+package edu.touro.mco152.bm;
+
+import static edu.touro.mco152.bm.App.KILOBYTE;
+import static edu.touro.mco152.bm.App.MEGABYTE;
+import static edu.touro.mco152.bm.App.blockSizeKb;
+import static edu.touro.mco152.bm.App.dataDir;
+import static edu.touro.mco152.bm.App.numOfBlocks;
+import static edu.touro.mco152.bm.App.testFile;
+import static edu.touro.mco152.bm.DiskMark.MarkType.READ;
+import static edu.touro.mco152.bm.DiskMark.MarkType.WRITE;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.touro.mco152.bm.pattern.AccessPattern;
+import edu.touro.mco152.bm.persist.DiskRun;
+
+/**
+ * The benchmark itself: runs the marks of every selected IO mode, stores each
+ * run and reports everything it does to a BenchmarkListener. It has no
+ * Swing dependencies, so it drives both the GUI, through DiskWorker, and
+ * the headless command line runner.
+ */
+public class Benchmark {
+    
+    /** blocks in the first mark of a time bounded run */
+    static final int PROBE_BLOCKS = 16;
+    /** most a time bounded mark may grow or shrink by from one mark to the next */
+    static final double MAX_MARK_SCALE = 4;
+    /** fewest measured marks a confidence interval target is judged on */
+    static final int MIN_CI_MARKS = 3;
+    /** time between progress reports */
+    static final long PROGRESS_MS = 250;
+    
+    private final BenchmarkListener listener;
+    private final BooleanSupplier cancelled;
+    private QueuedIoRunner runner = null;
+    private ByteBuffer blockBuf = null;
+    // read by the progress reporter's thread as well
+    private volatile int phases = 0;
+    private volatile int phasesDone = 0;
+    private volatile long phaseStartNs = 0;
+    private volatile long phaseStartBlocks = 0;
+    private int phaseMarks = 0;
+    private ProgressReporter progress = null;
+    private ThroughputSampler sampler = null;
+    private IntegrityChecker integrity = null;
+    // the mark in progress, read by the sampler to place its samples
+    private volatile int markNum = 0;
+    private volatile long markStartBlocks = 0;
+    private volatile int markBlockCount = 1;
+    private volatile int markFiles = 1;
+    private volatile int phaseFiles = 0;
+    // files the phase in progress runs, at most App.numOfMarks
+    private volatile int phaseFileCount = 1;
+    // files the WRITE phase got through, a READ phase reads no more
+    private int writtenFiles = -1;
+    // blocks the WRITE phase wrote to each of its files, by place in the phase
+    private int[] writtenBlocks = null;
+    private volatile MetadataWorkload metadata = null;
+    private int failures = 0;
+    
+    /**
+     * @param listener receives messages, progress, marks and runs
+     * @param cancelled checked between blocks, true stops the benchmark
+     */
+    public Benchmark(BenchmarkListener listener, BooleanSupplier cancelled) {
+        this.listener = listener;
+        this.cancelled = cancelled;
+    }
+    
+    /**
+     * Run the benchmark with the current App settings. App.dataDir must
+     * already exist.
+     * @return true if every mark completed without an I/O error
+     */
+    public boolean run() {
+        
+        msg("Running readTest "+App.readTest+"   writeTest "+App.writeTest
+           +"   mixedTest "+App.mixedTest+"   metadataTest "+App.metadataTest);
+        msg("num files: "+App.numOfMarks+", num blks: "+App.numOfBlocks
+           +", blk size (kb): "+App.blockSizeKb+", blockSequence: "+App.blockSequence
+           +", engine: "+App.ioEngine+", threads: "+App.numOfThreads
+           +", queue depth: "+App.queueDepth);
+        if (App.mixedTest) {
+            msg("mixed read/write ratio: "+App.readPercent+"/"+(100-App.readPercent));
+        }
+        if (isTimeBounded()) {
+            msg("time bounded, mark time (ms): "+App.markTimeMs+", run time (sec): "
+                    +App.runTimeSec+", at most "+App.numOfMarks+" marks of "
+                    +App.numOfBlocks+" blocks");
+        }
+        
+        phases = (App.writeTest ? 1 : 0) + (App.readTest ? 1 : 0)
+                + (App.mixedTest ? 1 : 0) + (App.metadataTest ? 1 : 0);
+        phasesDone = 0;
+        writtenFiles = -1;
+        writtenBlocks = null;
+        
+        int blockSize = blockSizeKb*KILOBYTE;
+        // the data written is generated here, before anything is timed, as
+        // a pool of distinct blocks the writes take in turn
+        long start = System.nanoTime();
+        DataGenerator generator = new DataGenerator(App.dataMode, App.compressRatio);
+        ByteBuffer[] dataPool = generator.createPool(blockSize, App.bufferPool,
+                App.randomSeed != 0 ? App.randomSeed : start);
+        blockBuf = dataPool[0];
+        msg("data: "+App.dataMode+", "+dataPool.length+" distinct blocks generated in "
+                +Util.displayString((System.nanoTime() - start) / 1e6)+" ms");
+   
+        // every phase goes through the runner, which copies the data into
+        // buffers of the engine's choosing and spreads the blocks over as many
+        // I/O slots as the thread count and queue depth call for
+        runner = new QueuedIoRunner(App.ioEngine, getParallelFiles(), App.numOfThreads,
+                App.queueDepth, dataPool);
+        int alignment = runner.getEngine().getAlignment();
+        if (blockSize % alignment != 0) {
+            // every block would fail, eg. direct I/O moves whole device sectors
+            msg(App.ioEngine+" needs a block size that is a multiple of "+alignment
+                    +" bytes, "+blockSize+" is not... aborting");
+            runner.shutdown();
+            return false;
+        }
+        if (App.parallelFiles > 1) {
+            msg(App.multiFile ? getParallelFiles()+" files at a time"
+                    : "parallel files need a file per mark, using one file");
+        }
+        // the I/O threads only count their blocks, the progress is worked
+        // out and passed on from a timer thread
+        progress = new ProgressReporter(PROGRESS_MS, this::getDone,
+                () -> runner.getBlocksComplete() * blockSize, listener::progress);
+        if (App.sampleMs > 0) {
+            sampler = new ThroughputSampler(App.sampleMs);
+        }
+        if (App.verifyData) {
+            // blocks are checked on half the cores while the others do I/O
+            integrity = new IntegrityChecker(ThreadLocalRandom.current().nextLong(),
+                    Runtime.getRuntime().availableProcessors() / 2);
+            runner.enableIntegrity(integrity);
+            msg("integrity checking on, run id "+integrity.getRunId());
+            if (App.readTest && !App.writeTest) {
+                msg("reads are only checked after the WRITE test of the same run");
+            }
+        }
+        
+        if (App.autoReset == true) {
+            App.resetTestData();
+        }
+        listener.benchmarkStarted();
+        
+        int startFileNum = App.nextMarkNumber;
+        
+        progress.start();
+        try {
+            if (App.writeTest) {
+                runPhase(DiskRun.IOMode.WRITE, startFileNum);
+            }
+            
+            // the reads need a cold cache, which does not matter when the
+            // engine reads from the device directly
+            if (App.readTest && App.writeTest && !isCancelled()
+                    && !runner.getEngine().bypassesCache()) {
+                listener.clearCache();
+            }
+            
+            if (App.readTest && !isCancelled()) {
+                runPhase(DiskRun.IOMode.READ, startFileNum);
+            }
+            if (App.mixedTest && !isCancelled()) {
+                runPhase(DiskRun.IOMode.READ_WRITE, startFileNum);
+            }
+            if (App.metadataTest && !isCancelled()) {
+                runMetadata();
+            }
+        } finally {
+            progress.shutdown();
+            runner.shutdown();
+            if (sampler != null) {
+                sampler.shutdown();
+            }
+            if (integrity != null) {
+                integrity.shutdown();
+            }
+        }
+        App.nextMarkNumber += App.numOfMarks;      
+        return failures == 0;
+    }
+    
+    /**
+     * Run the marks of one IO mode and store them as one run. A READ_WRITE
+     * run reads and writes the same file at App.readPercent reads, each
+     * mark reporting its read and write parts as separate marks.
+     * @param mode the IO mode of the run
+     * @param startFileNum number of the first mark
+     */
+    private void runPhase(DiskRun.IOMode mode, int startFileNum) {
+        int readPercent = mode == DiskRun.IOMode.READ ? 100
+                : mode == DiskRun.IOMode.WRITE ? 0 : App.readPercent;
+        int blockSize = blockSizeKb*KILOBYTE;
+        
+        DiskRun run = new DiskRun(mode, App.blockSequence);
+        run.setEngine(App.ioEngine);
+        run.setCacheBypassed(runner.getEngine().bypassesCache());
+        run.setNumThreads(App.numOfThreads);
+        run.setQueueDepth(App.queueDepth);
+        run.setParallelFiles(getParallelFiles());
+        run.setReadPercent(mode == DiskRun.IOMode.READ_WRITE ? readPercent : 0);
+        if (mode != DiskRun.IOMode.READ) {
+            run.setPreallocation(App.preallocation);
+            run.setDataMode(App.dataMode);
+            if (App.dataMode == DiskRun.DataMode.COMPRESSIBLE) {
+                run.setCompressRatio(App.compressRatio);
+            }
+            run.setSyncPolicy(App.syncPolicy);
+            run.setSyncEvery(App.syncEvery);
+        }
+        runner.setSyncPolicy(mode == DiskRun.IOMode.READ ? DiskRun.SyncPolicy.NONE
+                : App.syncPolicy, App.syncEvery);
+        // only blocks this benchmark wrote can be checked
+        boolean verify = integrity != null && mode == DiskRun.IOMode.READ && App.writeTest;
+        if (integrity != null) {
+            run.setIntegrity(mode != DiskRun.IOMode.READ || verify);
+            integrity.reset();
+            runner.setVerifyReads(verify);
+        }
+        // a write phase cut short, eg. by the run time, left fewer files
+        int numMarks = App.numOfMarks;
+        if (mode == DiskRun.IOMode.READ && writtenFiles >= 0 && writtenFiles < numMarks) {
+            numMarks = writtenFiles;
+            msg("reading back the "+numMarks+" files the WRITE test got to");
+        }
+        run.setNumMarks(numMarks);
+        run.setMarkTimeMs(App.markTimeMs);
+        run.setCiTargetPercent(App.ciTargetPercent);
+        run.setNumBlocks(App.numOfBlocks);
+        run.setBlockSize(App.blockSizeKb);
+        run.setTxSize(App.targetTxSizeKb());
+        run.setDiskInfo(Util.getDiskInfo(dataDir));
+        
+        // the block order is worked out once for the whole run, off the I/O path
+        AccessPattern pattern = AccessPattern.create(App.blockSequence);
+        long seed = App.randomSeed != 0 ? App.randomSeed : System.nanoTime();
+        if (pattern.isSeeded()) {
+            run.setSeed(seed);
+            msg("block order seed: "+seed);
+        }
+        int[] blocks = null;
+        
+        msg("disk info: ("+ run.getDiskInfo()+")");
+        
+        listener.runStarted(run);
+        
+        // totals of the files of a mark, and each file on its own
+        IoStats readStats = new IoStats();
+        IoStats writeStats = new IoStats();
+        int numFiles = getParallelFiles();
+        IoStats[] fileReadStats = new IoStats[numFiles];
+        IoStats[] fileWriteStats = new IoStats[numFiles];
+        for (int f=0; f<numFiles; f++) {
+            fileReadStats[f] = new IoStats();
+            fileWriteStats[f] = new IoStats();
+        }
+        LatencyHistogram runLatency = new LatencyHistogram();
+        LatencyHistogram runSyncLatency = new LatencyHistogram();
+        // bandwidth of the mixed marks as a whole
+        double mixedMax = -1, mixedMin = -1, mixedAvg = -1;
+        int growingMarks = 0;
+        // a time bounded run starts with small marks and sizes the following
+        // ones from how long the last one took
+        int markBlocks = App.markTimeMs > 0 ? Math.min(numOfBlocks, PROBE_BLOCKS) : numOfBlocks;
+        long runBytes = 0;
+        long runNs = 0;
+        phaseStartNs = System.nanoTime();
+        phaseStartBlocks = runner.getBlocksComplete();
+        phaseMarks = 0;
+        phaseFiles = 0;
+        phaseFileCount = Math.max(1, numMarks);
+        // marks in the results, the warm-up marks before them are only charted
+        int measuredMarks = 0;
+        SteadyStateDetector steady = new SteadyStateDetector(App.steadyWindow, App.steadyCov);
+        markNum = startFileNum;
+        markStartBlocks = runner.getBlocksComplete();
+        if (sampler != null) {
+            run.setSampleMs(App.sampleMs);
+            sampler.start(() -> runner.getBlocksComplete() * blockSize, this::getMarkPosition,
+                    (position, mbSec) -> listener.throughputSampled(mode, position, mbSec));
+        }
+        BandwidthStats bwStats = new BandwidthStats();
+        int[] blocksWritten = mode == DiskRun.IOMode.WRITE ? new int[numMarks] : null;
+        
+        if (App.multiFile == false) {
+            testFile = new File(dataDir.getAbsolutePath()+File.separator+"testdata.jdm");
+        }
+        // with parallel files each mark runs the files of several marks at
+        // once and reports them together under the number of the first
+        int step = 1;
+        for (int m=startFileNum; m<startFileNum+numMarks && !isCancelled()
+                && !isRunTimeUp(); m+=step) {
+            
+            step = Math.min(numFiles, startFileNum + numMarks - m);
+            // the numbers of the files the mark runs, a READ leaves out the
+            // ones the write marks of this benchmark wrote nothing to
+            int[] fileNums = new int[step];
+            int files = 0;
+            for (int f=0; f<step; f++) {
+                if (mode == DiskRun.IOMode.READ && writtenBlocks != null
+                        && writtenBlocks[m + f - startFileNum] == 0) {
+                    msg("m:"+(m+f)+" skipped, the WRITE test wrote nothing to it");
+                    continue;
+                }
+                fileNums[files++] = m + f;
+            }
+            if (files == 0) {
+                phaseFiles += step;
+                continue;
+            }
+            File[] testFiles = new File[files];
+            for (int f=0; f<files; f++) {
+                testFiles[f] = App.multiFile ? new File(dataDir.getAbsolutePath()
+                        + File.separator+"testdata"+fileNums[f]+".jdm") : testFile;
+            }
+            testFile = testFiles[0];
+            // markBlocks stays the nominal size, this mark may run fewer
+            int blockCount = markBlocks;
+            if (mode == DiskRun.IOMode.READ && writtenBlocks != null) {
+                // only read back what the write marks of this benchmark wrote,
+                // a file may be longer from an earlier one
+                for (int f=0; f<files; f++) {
+                    blockCount = Math.min(blockCount, writtenBlocks[fileNums[f] - startFileNum]);
+                }
+            } else if (App.markTimeMs > 0 && mode == DiskRun.IOMode.READ) {
+                // only read back what the write marks left in the files
+                for (File file : testFiles) {
+                    blockCount = (int) Math.max(1, Math.min(blockCount, file.length() / blockSize));
+                }
+            }
+            if (blocks == null || blocks.length != blockCount) {
+                blocks = pattern.generate(blockCount, seed);
+            }
+            long fileLength = (long) blockCount * blockSize;
+            for (int f=0; f<files; f++) {
+                fileReadStats[f].reset();
+                fileWriteStats[f].reset();
+            }
+            readStats.reset();
+            writeStats.reset();
+            long startTime = 0;
+            boolean cutShort = false;
+            
+            try {
+                // preparing the files is not timed
+                for (int f=0; f<files; f++) {
+                    if (mode == DiskRun.IOMode.READ_WRITE) {
+                        // mixed reads need data to read
+                        Util.fillFile(testFiles[f], fileLength, blockBuf.array());
+                    } else if (mode == DiskRun.IOMode.WRITE) {
+                        preallocate(fileNums[f], testFiles[f], fileLength);
+                    }
+                    if (mode != DiskRun.IOMode.READ && testFiles[f].length() < fileLength) {
+                        growingMarks++;
+                        run.setGrowingMarks(growingMarks);
+                    }
+                }
+                markStartBlocks = runner.getBlocksComplete();
+                markBlockCount = blocks.length * files;
+                markFiles = files;
+                markNum = m;
+                startTime = System.nanoTime();
+                runner.runMark(testFiles, readPercent, blocks,
+                        fileReadStats, fileWriteStats, cancelled);
+            } catch (IOException ex) {
+                failures++;
+                msg("m:"+m+" failed: "+ex);
+                Logger.getLogger(App.class.getName()).log(Level.SEVERE, null, ex);
+                // the mark did not run, there is nothing to report for it,
+                // but the blocks it read may still be being checked
+                phaseFiles += step;
+                if (verify) {
+                    awaitChecks();
+                }
+                continue;
+            } catch (InterruptedException ex) {
+                // cancelled while queued requests were in flight
+                Logger.getLogger(App.class.getName()).log(Level.INFO, null, ex);
+                cutShort = true;
+            }
+            long endTime = System.nanoTime();
+            long elapsedTimeNs = endTime - startTime;
+            // a write cut short may have left gaps, it is not read back
+            if (blocksWritten != null && !cutShort) {
+                for (int f=0; f<files; f++) {
+                    blocksWritten[fileNums[f] - startFileNum] = blocks.length;
+                }
+            }
+            for (int f=0; f<files; f++) {
+                readStats.add(fileReadStats[f]);
+                writeStats.add(fileWriteStats[f]);
+            }
+            phaseFiles += step;
+            if (verify) {
+                // blocks still being checked are waited for outside the timing
+                awaitChecks();
+            }
+            double sec = (double)elapsedTimeNs / (double)1000000000;
+            double mbWritten = (double)writeStats.getBytes() / (double)MEGABYTE;
+            double mbRead = (double)readStats.getBytes() / (double)MEGABYTE;
+            
+            phaseMarks++;
+            double markBw = (mbRead + mbWritten) / sec;
+            boolean warmup = phaseMarks <= App.warmupMarks
+                    || (App.waitForSteady && !steady.isSteady());
+            if (phaseMarks > App.warmupMarks && !steady.isSteady()
+                    && steady.add(m, markBw)) {
+                run.setSteadyStateMark(steady.getSteadyMark());
+                msg("steady state from mark "+steady.getSteadyMark()+", variation "
+                        + Util.displayString(steady.getCov() * 100)+"% over the last "
+                        + App.steadyWindow+" marks");
+            }
+            if (warmup) {
+                run.setWarmupMarks(run.getWarmupMarks() + 1);
+            } else {
+                measuredMarks++;
+                bwStats.add(markBw);
+                runBytes += writeStats.getBytes() + readStats.getBytes();
+                runNs += elapsedTimeNs;
+                runLatency.add(writeStats.getLatency());
+                runLatency.add(readStats.getLatency());
+                runSyncLatency.add(writeStats.getSyncLatency());
+            }
+            
+            DiskMark wMark = new DiskMark(WRITE);
+            wMark.setMarkNum(m);
+            wMark.setWarmup(warmup);
+            wMark.setBytes(writeStats.getBytes());
+            wMark.setElapsedNs(elapsedTimeNs);
+            wMark.setBwMbSec(mbWritten / sec);
+            wMark.setLatencies(writeStats.getLatency());
+            DiskMark rMark = new DiskMark(READ);
+            rMark.setMarkNum(m);
+            rMark.setWarmup(warmup);
+            rMark.setBytes(readStats.getBytes());
+            rMark.setElapsedNs(elapsedTimeNs);
+            rMark.setBwMbSec(mbRead / sec);
+            rMark.setLatencies(readStats.getLatency());
+            
+            if (mode == DiskRun.IOMode.WRITE) {
+                msg("m:"+m+" write IO is "+wMark.getBwMbSecAsString()+" MB/s     "
+                        + "("+Util.displayString(mbWritten)+ "MB written in "
+                        + Util.displayString(sec)+" sec)");
+            } else if (mode == DiskRun.IOMode.READ) {
+                msg("m:"+m+" READ IO is "+rMark.getBwMbSec()+" MB/s    "
+                        + "(MBread "+mbRead+" in "+sec+" sec)");
+            } else {
+                msg("m:"+m+" mixed IO is "+Util.displayString((mbRead + mbWritten) / sec)
+                        +" MB/s     (read "+rMark.getBwMbSecAsString()+" MB/s, write "
+                        + wMark.getBwMbSecAsString()+" MB/s in "+Util.displayString(sec)+" sec)");
+            }
+            if (warmup) {
+                msg("m:"+m+" is a warm-up mark, left out of the results");
+            }
+            if (files > 1) {
+                for (int f=0; f<files; f++) {
+                    fileComplete(fileNums[f], testFiles[f], warmup, fileWriteStats[f], WRITE);
+                    fileComplete(fileNums[f], testFiles[f], warmup, fileReadStats[f], READ);
+                }
+            }
+            // summed over every slot of the mark
+            long forceTimeNs = runner.getForceTimeNs();
+            if (forceTimeNs > 0) {
+                msg("m:"+m+" force time "
+                        + Util.displayString(forceTimeNs / 1000000d)+" ms");
+            }
+            LatencyHistogram syncLatency = writeStats.getSyncLatency();
+            if (syncLatency.getCount() > 0) {
+                msg("m:"+m+" "+syncLatency.getCount()+" syncs, p50 "
+                        + Util.displayString(syncLatency.getValueAtPercentile(50) / 1e6)+" ms, p99 "
+                        + Util.displayString(syncLatency.getValueAtPercentile(99) / 1e6)+" ms, max "
+                        + Util.displayString(syncLatency.getMax() / 1e6)+" ms");
+            }
+            long handlerTimeNs = runner.getHandlerTimeNs();
+            if (handlerTimeNs > 0) {
+                msg("m:"+m+" completion handler time "
+                        + Util.displayString(handlerTimeNs / 1000000d)+" ms");
+            }
+            if (mode != DiskRun.IOMode.READ) {
+                if (mode == DiskRun.IOMode.READ_WRITE) {
+                    msg("m:"+m+" write latency "+wMark.getLatenciesAsString());
+                } else {
+                    msg("m:"+m+" latency "+wMark.getLatenciesAsString());
+                }
+                App.updateMetrics(wMark);
+                listener.markComplete(wMark);
+            }
+            if (mode != DiskRun.IOMode.WRITE) {
+                if (mode == DiskRun.IOMode.READ_WRITE) {
+                    msg("m:"+m+" read latency "+rMark.getLatenciesAsString());
+                } else {
+                    msg("m:"+m+" latency "+rMark.getLatenciesAsString());
+                }
+                App.updateMetrics(rMark);
+                listener.markComplete(rMark);
+            }
+            
+            // the run results only cover the measured marks
+            if (!warmup) {
+                if (mode == DiskRun.IOMode.WRITE) {
+                    run.setRunMax(wMark.getCumMax());
+                    run.setRunMin(wMark.getCumMin());
+                    run.setRunAvg(wMark.getCumAvg());
+                } else if (mode == DiskRun.IOMode.READ) {
+                    run.setRunMax(rMark.getCumMax());
+                    run.setRunMin(rMark.getCumMin());
+                    run.setRunAvg(rMark.getCumAvg());
+                } else {
+                    int n = measuredMarks;
+                    mixedMax = mixedMax == -1 ? markBw : Math.max(mixedMax, markBw);
+                    mixedMin = mixedMin == -1 ? markBw : Math.min(mixedMin, markBw);
+                    mixedAvg = mixedAvg == -1 ? markBw : ((n-1)*mixedAvg + markBw) / n;
+                    run.setRunMax(mixedMax);
+                    run.setRunMin(mixedMin);
+                    run.setRunAvg(mixedAvg);
+                }
+            }
+            if (bwStats.getCount() >= 2) {
+                run.setCiHalfWidth(bwStats.getHalfWidth());
+                run.setCiPercent(bwStats.getHalfWidthPercent());
+            }
+            run.setTotalMarks(phaseMarks);
+            run.setTotalBytes(runBytes);
+            run.setElapsedNs(runNs);
+            run.setEndTime(new Date());
+            
+            if (App.markTimeMs > 0) {
+                markBlocks = nextMarkBlocks(blocks.length, elapsedTimeNs);
+            }
+            if (App.ciTargetPercent > 0 && bwStats.getCount() >= MIN_CI_MARKS
+                    && bwStats.getHalfWidthPercent() <= App.ciTargetPercent) {
+                msg("95% confidence interval "+run.getCiString()+" of the mean after "
+                        + bwStats.getCount()+" marks, target of \u00b1"
+                        + App.ciTargetPercent+"% reached");
+                // a READ phase after this one reads back only these files
+                break;
+            }
+        }
+        phasesDone++;
+        if (mode == DiskRun.IOMode.WRITE) {
+            writtenFiles = phaseFiles;
+            writtenBlocks = blocksWritten;
+        }
+        if (sampler != null) {
+            sampler.stop();
+            run.setThroughput(sampler.toBytes());
+        }
+        
+        setRunLatencies(run, runLatency);
+        if (runSyncLatency.getCount() > 0) {
+            run.setSyncCount(runSyncLatency.getCount());
+            run.setSyncLat50(runSyncLatency.getValueAtPercentile(50) / 1e6);
+            run.setSyncLat90(runSyncLatency.getValueAtPercentile(90) / 1e6);
+            run.setSyncLat99(runSyncLatency.getValueAtPercentile(99) / 1e6);
+            run.setSyncLatMax(runSyncLatency.getMax() / 1e6);
+        }
+        if (verify) {
+            run.setVerifiedBlocks(integrity.getVerified());
+            run.setMismatchBlocks(integrity.getMismatches());
+            run.setUnwrittenBlocks(integrity.getUnwritten());
+            run.setStaleBlocks(integrity.getStale());
+            run.setChecksumNs(integrity.getChecksumNs());
+            msg("integrity: "+run.getIntegrityString()+", checksum CPU time "
+                    + Util.displayString(run.getChecksumNs() / 1000000d)+" ms, I/O time "
+                    + Util.displayString(run.getElapsedNs() / 1000000d)+" ms");
+            if (integrity.getFirstMismatch() != null) {
+                msg("first mismatch at "+integrity.getFirstMismatch());
+            }
+        }
+        
+        storeRun(run);
+    }
+    
+    /**
+     * Run the small file workload and store it as a METADATA run.
+     */
+    private void runMetadata() {
+        DiskRun run = new DiskRun(DiskRun.IOMode.METADATA, App.blockSequence);
+        run.setNumThreads(App.numOfThreads);
+        run.setMetaFiles(App.metaFiles);
+        run.setMetaFileSize(App.metaFileSize);
+        run.setDiskInfo(Util.getDiskInfo(dataDir));
+        msg("metadata test: "+App.metaFiles+" files of "+App.metaFileSize+" bytes, "
+                + App.metaFilesPerDir+" per directory, threads: "+App.numOfThreads);
+        listener.runStarted(run);
+        
+        long seed = App.randomSeed != 0 ? App.randomSeed : System.nanoTime();
+        byte[] content = new DataGenerator(App.dataMode, App.compressRatio)
+                .createPool(Math.max(0, App.metaFileSize), 1, seed)[0].array();
+        MetadataWorkload workload = new MetadataWorkload(new File(dataDir, "metadata"),
+                App.metaFiles, App.metaFilesPerDir, App.numOfThreads, content);
+        metadata = workload;
+        try {
+            workload.setUp();
+            for (MetadataWorkload.Op op : MetadataWorkload.Op.values()) {
+                if (isCancelled()) {
+                    break;
+                }
+                workload.run(op, cancelled);
+                LatencyHistogram latency = workload.getLatency(op);
+                msg(op+": "+Util.displayString(workload.getOpsPerSec(op))+" ops/s, p50 "
+                        + Util.displayString(latency.getValueAtPercentile(50) / 1e6)+" ms, p99 "
+                        + Util.displayString(latency.getValueAtPercentile(99) / 1e6)+" ms, max "
+                        + Util.displayString(latency.getMax() / 1e6)+" ms");
+            }
+        } catch (IOException ex) {
+            failures++;
+            msg("metadata test failed: "+ex);
+            Logger.getLogger(App.class.getName()).log(Level.SEVERE, null, ex);
+        } catch (InterruptedException ex) {
+            Logger.getLogger(App.class.getName()).log(Level.INFO, null, ex);
+        } finally {
+            workload.shutdown();
+            workload.tearDown();
+        }
+        phasesDone++;
+        metadata = null;
+        
+        run.setCreateOpsSec(workload.getOpsPerSec(MetadataWorkload.Op.CREATE));
+        run.setCreateLat50(workload.getLatency(MetadataWorkload.Op.CREATE).getValueAtPercentile(50) / 1e6);
+        run.setCreateLat99(workload.getLatency(MetadataWorkload.Op.CREATE).getValueAtPercentile(99) / 1e6);
+        run.setStatOpsSec(workload.getOpsPerSec(MetadataWorkload.Op.STAT));
+        run.setStatLat50(workload.getLatency(MetadataWorkload.Op.STAT).getValueAtPercentile(50) / 1e6);
+        run.setStatLat99(workload.getLatency(MetadataWorkload.Op.STAT).getValueAtPercentile(99) / 1e6);
+        run.setReadOpsSec(workload.getOpsPerSec(MetadataWorkload.Op.READ));
+        run.setReadLat50(workload.getLatency(MetadataWorkload.Op.READ).getValueAtPercentile(50) / 1e6);
+        run.setReadLat99(workload.getLatency(MetadataWorkload.Op.READ).getValueAtPercentile(99) / 1e6);
+        run.setDeleteOpsSec(workload.getOpsPerSec(MetadataWorkload.Op.DELETE));
+        run.setDeleteLat50(workload.getLatency(MetadataWorkload.Op.DELETE).getValueAtPercentile(50) / 1e6);
+        run.setDeleteLat99(workload.getLatency(MetadataWorkload.Op.DELETE).getValueAtPercentile(99) / 1e6);
+        LatencyHistogram all = new LatencyHistogram();
+        long elapsedNs = 0;
+        for (MetadataWorkload.Op op : MetadataWorkload.Op.values()) {
+            all.add(workload.getLatency(op));
+            elapsedNs += workload.getElapsedNs(op);
+        }
+        setRunLatencies(run, all);
+        run.setTotalBytes((workload.getCount(MetadataWorkload.Op.CREATE)
+                + workload.getCount(MetadataWorkload.Op.READ)) * App.metaFileSize);
+        run.setElapsedNs(elapsedNs);
+        run.setEndTime(new Date());
+        
+        storeRun(run);
+    }
+    
+    /**
+     * Hand a finished run to the run store, which passes it on to the
+     * listener once it is stored, or failed to be. The benchmark goes on
+     * without waiting.
+     */
+    private void storeRun(DiskRun run) {
+        App.runStore.store(run, listener::runComplete);
+    }
+    
+    /**
+     * Report the part of a mark one of its parallel files did.
+     */
+    private void fileComplete(int m, File file, boolean warmup, IoStats stats,
+            DiskMark.MarkType type) {
+        if (stats.getBlocks() == 0) {
+            return;
+        }
+        DiskMark mark = new DiskMark(type);
+        mark.setMarkNum(m);
+        mark.setWarmup(warmup);
+        mark.setBytes(stats.getBytes());
+        mark.setElapsedNs(stats.getElapsedNs());
+        mark.setBwMbSec((double) stats.getBytes() / MEGABYTE / (stats.getElapsedNs() / 1e9));
+        mark.setLatencies(stats.getLatency());
+        msg("m:"+m+" "+file.getName()+" "+type.toString().toLowerCase()+" "
+                + mark.getBwMbSecAsString()+" MB/s");
+        listener.fileComplete(mark, file);
+    }
+    
+    /**
+     * Preallocate the test file of a write mark as App.preallocation asks, so
+     * the mark writes into space that already belongs to the file. With NONE
+     * a new file grows block by block as the mark writes it.
+     */
+    private void preallocate(int m, File file, long length) throws IOException {
+        if (App.preallocation == DiskRun.PreallocMode.NONE
+                || file.length() >= length) {
+            return;
+        }
+        long start = System.nanoTime();
+        if (App.preallocation == DiskRun.PreallocMode.SET_LENGTH) {
+            // only sets the size, most file systems leave the space sparse
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(length);
+            }
+        } else {
+            Util.fillFile(file, length, new byte[blockBuf.capacity()]);
+        }
+        double sec = (System.nanoTime() - start) / 1e9;
+        msg("m:"+m+" preallocated "+Util.displayString((double) length / MEGABYTE)
+                +" MB ("+App.preallocation+") in "+Util.displayString(sec)+" sec");
+    }
+    
+    /**
+     * Store the block latency percentiles of a whole run.
+     */
+    static void setRunLatencies(DiskRun run, LatencyHistogram histogram) {
+        run.setLat50(histogram.getValueAtPercentile(50) / 1e6);
+        run.setLat90(histogram.getValueAtPercentile(90) / 1e6);
+        run.setLat99(histogram.getValueAtPercentile(99) / 1e6);
+        run.setLat999(histogram.getValueAtPercentile(99.9) / 1e6);
+        run.setLatMax(histogram.getMax() / 1e6);
+    }
+    
+    /**
+     * Scale the blocks of the next mark so it lasts about App.markTimeMs. The
+     * size changes by at most MAX_MARK_SCALE per mark so one outlier, eg. a
+     * cache flush, can not swing it too far, and never exceeds numOfBlocks.
+     * @param blocks blocks in the mark just completed
+     * @param elapsedNs how long that mark took
+     * @return blocks for the next mark
+     */
+    static int nextMarkBlocks(int blocks, long elapsedNs) {
+        double scale = App.markTimeMs * 1e6 / Math.max(1, elapsedNs);
+        scale = Math.max(1 / MAX_MARK_SCALE, Math.min(MAX_MARK_SCALE, scale));
+        return (int) Math.max(1, Math.min(numOfBlocks, Math.round(blocks * scale)));
+    }
+    
+    /**
+     * Wait until the blocks read so far have been checked, so the next mark
+     * can reuse their buffers.
+     */
+    private void awaitChecks() {
+        try {
+            integrity.awaitIdle();
+        } catch (InterruptedException ex) {
+            Logger.getLogger(App.class.getName()).log(Level.INFO, null, ex);
+        }
+    }
+    
+    private static boolean isTimeBounded() {
+        return App.markTimeMs > 0 || App.runTimeSec > 0;
+    }
+    
+    private boolean isRunTimeUp() {
+        return App.runTimeSec > 0
+                && System.nanoTime() - phaseStartNs >= App.runTimeSec * 1000000000L;
+    }
+    
+    /**
+     * @return the share of the benchmark done. Time bounded runs count their
+     * marks and the run time used, the metadata test its operations and the
+     * others the blocks transferred.
+     */
+    private double getDone() {
+        double phaseDone;
+        MetadataWorkload workload = metadata;
+        if (workload != null) {
+            phaseDone = (double) workload.getOpsComplete()
+                    / ((long) App.metaFiles * MetadataWorkload.Op.values().length);
+        } else if (isTimeBounded()) {
+            phaseDone = (double) phaseFiles / phaseFileCount;
+            if (App.runTimeSec > 0) {
+                phaseDone = Math.max(phaseDone,
+                        (System.nanoTime() - phaseStartNs) / (App.runTimeSec * 1e9));
+            }
+        } else {
+            phaseDone = (double) (runner.getBlocksComplete() - phaseStartBlocks)
+                    / ((long) numOfBlocks * phaseFileCount);
+        }
+        return phases == 0 ? 0 : (phasesDone + Math.min(1, phaseDone)) / phases;
+    }
+    
+    /**
+     * @return the mark in progress plus the share of its blocks done, eg.
+     * 2.5 half way through mark 3, the way the chart places marks
+     */
+    private double getMarkPosition() {
+        double done = (double) (runner.getBlocksComplete() - markStartBlocks) / markBlockCount;
+        return markNum - 1 + Math.min(1, done) * markFiles;
+    }
+    
+    /**
+     * @return files run at the same time, parallel files need a file per mark
+     */
+    private static int getParallelFiles() {
+        return App.multiFile ? Math.max(1, App.parallelFiles) : 1;
+    }
+    
+    private boolean isCancelled() {
+        return cancelled.getAsBoolean();
+    }
+    
+    private void msg(String message) {
+        listener.message(message);
+    }
+}
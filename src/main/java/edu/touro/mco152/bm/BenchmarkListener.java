@@ -0,0 +1,86 @@
+package edu.touro.mco152.bm;
+
+import java.io.File;
+
+import edu.touro.mco152.bm.persist.DiskRun;
+
+/**
+ * Receives everything a Benchmark reports while it runs. Unless noted
+ * otherwise every method is called on the benchmark's own thread,
+ * implementations that update a user interface have to hand the work over
+ * to it themselves.
+ */
+public interface BenchmarkListener {
+    
+    /**
+     * A line of log output for the user.
+     * @param message the text
+     */
+    void message(String message);
+    
+    /**
+     * How far the benchmark has got, called from the progress reporter's own
+     * thread every few hundred milliseconds while the percentage changes.
+     * @param percent share of the benchmark done, between 0 and 100
+     * @param bytesDone bytes read and written so far
+     * @param etaMs estimated milliseconds left, -1 if not known yet
+     */
+    void progress(int percent, long bytesDone, long etaMs);
+    
+    /**
+     * Called once before the first run, after the cumulative metrics have
+     * been reset if App.autoReset is set.
+     */
+    default void benchmarkStarted() {
+    }
+    
+    /**
+     * A run has been set up and its first mark is about to start.
+     * @param run the run, its results are not filled in yet
+     */
+    default void runStarted(DiskRun run) {
+    }
+    
+    /**
+     * A mark has completed and its cumulative metrics are set. A mixed mark
+     * is reported as a write mark followed by a read mark.
+     * @param mark the mark
+     */
+    void markComplete(DiskMark mark);
+    
+    /**
+     * One file of a mark that ran several files at once has completed, before
+     * the mark itself is reported with the totals of all of them.
+     * @param mark bytes, bandwidth and latencies of the file alone
+     * @param file the file
+     */
+    default void fileComplete(DiskMark mark, File file) {
+    }
+    
+    /**
+     * Throughput over the last sample interval, called from the sampler's
+     * own thread every App.sampleMs while a run is going.
+     * @param mode the IO mode of the run
+     * @param position fractional mark number the sample was taken at
+     * @param mbSec throughput since the previous sample
+     */
+    default void throughputSampled(DiskRun.IOMode mode, double position, double mbSec) {
+    }
+    
+    /**
+     * A run has completed and been handed to the database, called from the
+     * run store's own thread once the run's transaction is done.
+     * @param run the run
+     * @param stored true if the run was stored and has its id, false if
+     * storing it failed
+     */
+    void runComplete(DiskRun run, boolean stored);
+    
+    /**
+     * Called between the write and read runs when the reads could otherwise
+     * be served from the cache the writes just filled. Returns once the user
+     * had the chance to clear it.
+     */
+    default void clearCache() {
+    }
+}
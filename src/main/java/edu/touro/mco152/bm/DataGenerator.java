@@ -0,0 +1,89 @@
+package edu.touro.mco152.bm;
+
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+
+import edu.touro.mco152.bm.persist.DiskRun;
+
+/**
+ * Generates the contents of the blocks a benchmark writes. Drives and file
+ * systems that compress or deduplicate report inflated numbers on easy
+ * data, so the data can be anything from all zeros to incompressible
+ * random bytes. A pool of distinct blocks is generated once before the
+ * first mark, the I/O loop only picks from it.
+ */
+public class DataGenerator {
+
+    /** unit the compressible mode mixes random bytes and zeros in */
+    static final int SEGMENT = 4096;
+
+    private final DiskRun.DataMode mode;
+    private final double compressRatio;
+
+    /**
+     * @param mode what to write
+     * @param compressRatio target ratio for COMPRESSIBLE data, eg. 2 for 2:1
+     */
+    public DataGenerator(DiskRun.DataMode mode, double compressRatio) {
+        this.mode = mode;
+        this.compressRatio = compressRatio;
+    }
+
+    /**
+     * Generate the block pool. Modes that write the same bytes every time
+     * get a single block whatever size is asked for.
+     * @param blockSize bytes in a block
+     * @param poolSize distinct blocks wanted
+     * @param seed seed for the random modes
+     * @return heap buffers of blockSize bytes
+     */
+    public ByteBuffer[] createPool(int blockSize, int poolSize, long seed) {
+        boolean random = mode == DiskRun.DataMode.RANDOM
+                || mode == DiskRun.DataMode.COMPRESSIBLE;
+        ByteBuffer[] pool = new ByteBuffer[random ? Math.max(1, poolSize) : 1];
+        SplittableRandom rand = new SplittableRandom(seed);
+        for (int i=0; i<pool.length; i++) {
+            pool[i] = ByteBuffer.allocate(blockSize);
+            fill(pool[i], rand);
+        }
+        return pool;
+    }
+
+    void fill(ByteBuffer buf, SplittableRandom rand) {
+        int size = buf.capacity();
+        switch (mode) {
+            case ZEROS:
+                break;
+            case RANDOM:
+                fillRandom(buf, 0, size, rand);
+                break;
+            case COMPRESSIBLE:
+                // every segment starts with random bytes and ends in zeros
+                // the compressor squeezes away, 1/ratio of it stays random
+                int randomBytes = compressRatio <= 1 ? SEGMENT
+                        : (int) Math.ceil(SEGMENT / compressRatio);
+                for (int seg=0; seg<size; seg+=SEGMENT) {
+                    fillRandom(buf, seg, Math.min(seg + randomBytes, size), rand);
+                }
+                break;
+            case REPEATING:
+            default:
+                for (int b=0; b<size; b++) {
+                    if (b%2==0) {
+                        buf.put(b, (byte)0xFF);
+                    }
+                }
+                break;
+        }
+    }
+
+    private static void fillRandom(ByteBuffer buf, int from, int to, SplittableRandom rand) {
+        int b = from;
+        for (; b + Long.BYTES <= to; b += Long.BYTES) {
+            buf.putLong(b, rand.nextLong());
+        }
+        for (; b < to; b++) {
+            buf.put(b, (byte) rand.nextInt());
+        }
+    }
+}
@@ -23,6 +23,17 @@ public class DiskMark {
     private double cumMin = 0;
     private double cumMax = 0;
     private double cumAvg = 0;
+    // what was actually transferred, bwMbSec is bytes over elapsed time
+    private long bytes = 0;
+    private long elapsedNs = 0;
+    // warm-up marks are charted but left out of the metrics
+    private boolean warmup = false;
+    // per block latency percentiles in ms
+    private double lat50 = 0;
+    private double lat90 = 0;
+    private double lat99 = 0;
+    private double lat999 = 0;
+    private double latMax = 0;
     
     @Override
     public String toString() {
@@ -44,6 +55,27 @@ public class DiskMark {
     String getAvgAsString() {
         return df.format(getCumAvg());
     }
+    
+    String getLatenciesAsString() {
+        return "p50 "+df.format(lat50)+" p90 "+df.format(lat90)+" p99 "+df.format(lat99)
+                +" p99.9 "+df.format(lat999)+" max "+df.format(latMax)+" ms";
+    }
+    
+    /**
+     * Take the latency percentiles of this mark from its histogram.
+     * @param histogram latencies of every block in the mark
+     */
+    void setLatencies(LatencyHistogram histogram) {
+        lat50 = histogram.getValueAtPercentile(50) / 1e6;
+        lat90 = histogram.getValueAtPercentile(90) / 1e6;
+        lat99 = histogram.getValueAtPercentile(99) / 1e6;
+        lat999 = histogram.getValueAtPercentile(99.9) / 1e6;
+        latMax = histogram.getMax() / 1e6;
+    }
+
+	public MarkType getType() {
+		return type;
+	}
 
 	public int getMarkNum() {
 		return markNum;
@@ -61,6 +93,30 @@ public class DiskMark {
 		this.bwMbSec = bwMbSec;
 	}
 
+	public long getBytes() {
+		return bytes;
+	}
+
+	public void setBytes(long bytes) {
+		this.bytes = bytes;
+	}
+
+	public long getElapsedNs() {
+		return elapsedNs;
+	}
+
+	public void setElapsedNs(long elapsedNs) {
+		this.elapsedNs = elapsedNs;
+	}
+
+	public boolean isWarmup() {
+		return warmup;
+	}
+
+	public void setWarmup(boolean warmup) {
+		this.warmup = warmup;
+	}
+
 	public double getCumAvg() {
 		return cumAvg;
 	}
@@ -84,4 +140,24 @@ public class DiskMark {
 	public void setCumMax(double cumMax) {
 		this.cumMax = cumMax;
 	}
+
+	public double getLat50() {
+		return lat50;
+	}
+
+	public double getLat90() {
+		return lat90;
+	}
+
+	public double getLat99() {
+		return lat99;
+	}
+
+	public double getLat999() {
+		return lat999;
+	}
+
+	public double getLatMax() {
+		return latMax;
+	}
 }
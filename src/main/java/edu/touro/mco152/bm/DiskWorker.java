@@ -1,235 +1,81 @@
-
 package edu.touro.mco152.bm;
 
-import static edu.touro.mco152.bm.App.KILOBYTE;
-import static edu.touro.mco152.bm.App.MEGABYTE;
-import static edu.touro.mco152.bm.App.blockSizeKb;
 import static edu.touro.mco152.bm.App.dataDir;
 import static edu.touro.mco152.bm.App.msg;
-import static edu.touro.mco152.bm.App.numOfBlocks;
-import static edu.touro.mco152.bm.App.numOfMarks;
-import static edu.touro.mco152.bm.App.testFile;
-import static edu.touro.mco152.bm.DiskMark.MarkType.READ;
-import static edu.touro.mco152.bm.DiskMark.MarkType.WRITE;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.util.Date;
 import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-import javax.persistence.EntityManager;
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
 
 import edu.touro.mco152.bm.persist.DiskRun;
-import edu.touro.mco152.bm.persist.EM;
 import edu.touro.mco152.bm.ui.Gui;
 
 /**
  * Thread running the disk benchmarking. only one of these threads can run at
- * once.
+ * once. The work is done by a Benchmark, this class passes what it reports
+ * on to the GUI.
  */
-public class DiskWorker extends SwingWorker <Boolean, DiskMark> {
+public class DiskWorker extends SwingWorker <Boolean, DiskMark> implements BenchmarkListener {
     
     @Override
     protected Boolean doInBackground() throws Exception {
-        
-        System.out.println("*** starting new worker thread");
-        msg("Running readTest "+App.readTest+"   writeTest "+App.writeTest);
-        msg("num files: "+App.numOfMarks+", num blks: "+App.numOfBlocks
-           +", blk size (kb): "+App.blockSizeKb+", blockSequence: "+App.blockSequence);
-        
-        int wUnitsComplete = 0,
-            rUnitsComplete = 0,
-            unitsComplete;
-        
-        int wUnitsTotal = App.writeTest ? numOfBlocks * numOfMarks : 0;
-        int rUnitsTotal = App.readTest ? numOfBlocks * numOfMarks : 0;
-        int unitsTotal = wUnitsTotal + rUnitsTotal;
-        float percentComplete;
-        
-        int blockSize = blockSizeKb*KILOBYTE;
-        byte [] blockArr = new byte [blockSize];
-        for (int b=0; b<blockArr.length; b++) {
-            if (b%2==0) {
-                blockArr[b]=(byte)0xFF;
-            }
-        }
-   
-        DiskMark wMark, rMark;
-        
+        return new Benchmark(this, this::isCancelled).run();
+    }
+    
+    @Override
+    public void message(String message) {
+        msg(message);
+    }
+    
+    @Override
+    public void progress(int percent, long bytesDone, long etaMs) {
+        setProgress(percent);
+        String text = String.valueOf(bytesDone / App.KILOBYTE)+" KB"
+                + (etaMs >= 0 ? ", "+(etaMs + 999) / 1000+" sec left" : "");
+        SwingUtilities.invokeLater(() -> Gui.progressBar.setString(text));
+    }
+    
+    @Override
+    public void benchmarkStarted() {
         Gui.updateLegend();
-        
         if (App.autoReset == true) {
-            App.resetTestData();
             Gui.resetTestData();
         }
-        
-        int startFileNum = App.nextMarkNumber;
-        
-        if(App.writeTest) {
-            DiskRun run = new DiskRun(DiskRun.IOMode.WRITE, App.blockSequence);
-            run.setNumMarks(App.numOfMarks);
-            run.setNumBlocks(App.numOfBlocks);
-            run.setBlockSize(App.blockSizeKb);
-            run.setTxSize(App.targetTxSizeKb());
-            run.setDiskInfo(Util.getDiskInfo(dataDir));
-            
-            msg("disk info: ("+ run.getDiskInfo()+")");
-            
-            Gui.chartPanel.getChart().getTitle().setVisible(true);
-            Gui.chartPanel.getChart().getTitle().setText(run.getDiskInfo());
-            
-            if (App.multiFile == false) {
-                testFile = new File(dataDir.getAbsolutePath()+File.separator+"testdata.jdm");
-            }            
-            for (int m=startFileNum; m<startFileNum+App.numOfMarks && !isCancelled(); m++) {
-                
-                if (App.multiFile == true) {
-                    testFile = new File(dataDir.getAbsolutePath()
-                            + File.separator+"testdata"+m+".jdm");
-                }   
-                wMark = new DiskMark(WRITE);
-                wMark.setMarkNum(m);
-                long startTime = System.nanoTime();
-                long totalBytesWrittenInMark = 0;
-
-                String mode = "rw";
-                if (App.writeSyncEnable) { mode = "rwd"; }
-                
-                try {
-                    try (RandomAccessFile rAccFile = new RandomAccessFile(testFile,mode)) {
-                        for (int b=0; b<numOfBlocks; b++) {
-                            if (App.blockSequence == DiskRun.BlockSequence.RANDOM) {
-                                int rLoc = Util.randInt(0, numOfBlocks-1);
-                                rAccFile.seek(rLoc*blockSize);
-                            } else {
-                                rAccFile.seek(b*blockSize);
-                            }
-                            rAccFile.write(blockArr, 0, blockSize);
-                            totalBytesWrittenInMark += blockSize;
-                            wUnitsComplete++;
-                            unitsComplete = rUnitsComplete + wUnitsComplete;
-                            percentComplete = (float)unitsComplete/(float)unitsTotal * 100f;
-                            setProgress((int)percentComplete);
-                        }
-                    }
-                } catch (FileNotFoundException ex) {
-                    Logger.getLogger(App.class.getName()).log(Level.SEVERE, null, ex);
-                } catch (IOException ex) {
-                    Logger.getLogger(App.class.getName()).log(Level.SEVERE, null, ex);
-                }
-                long endTime = System.nanoTime();
-                long elapsedTimeNs = endTime - startTime;
-                double sec = (double)elapsedTimeNs / (double)1000000000;
-                double mbWritten = (double)totalBytesWrittenInMark / (double)MEGABYTE;
-                wMark.setBwMbSec(mbWritten / sec);
-                msg("m:"+m+" write IO is "+wMark.getBwMbSecAsString()+" MB/s     "
-                        + "("+Util.displayString(mbWritten)+ "MB written in "
-                        + Util.displayString(sec)+" sec)");
-                App.updateMetrics(wMark);
-                publish(wMark);
-                
-                run.setRunMax(wMark.getCumMax());
-                run.setRunMin(wMark.getCumMin());
-                run.setRunAvg(wMark.getCumAvg());
-                run.setEndTime(new Date());
-            }
-            
-            EntityManager em = EM.getEntityManager();
-            em.getTransaction().begin();
-            em.persist(run);
-            em.getTransaction().commit();
-            
-            Gui.runPanel.addRun(run);
-        }
-        
-        
-        // try renaming all files to clear catch
-        if (App.readTest && App.writeTest && !isCancelled()) {
-            JOptionPane.showMessageDialog(Gui.mainFrame, 
-                "For valid READ measurements please clear the disk cache by\n" +
-                "using the included RAMMap.exe or flushmem.exe utilities.\n" +
-                "Removable drives can be disconnected and reconnected.\n" +
-                "For system drives use the WRITE and READ operations \n" +
-                "independantly by doing a cold reboot after the WRITE",
-                "Clear Disk Cache Now",JOptionPane.PLAIN_MESSAGE);
-        }
-        
-        if (App.readTest) {
-            DiskRun run = new DiskRun(DiskRun.IOMode.READ, App.blockSequence);
-            run.setNumMarks(App.numOfMarks);
-            run.setNumBlocks(App.numOfBlocks);
-            run.setBlockSize(App.blockSizeKb);
-            run.setTxSize(App.targetTxSizeKb());
-            run.setDiskInfo(Util.getDiskInfo(dataDir));
-              
-            msg("disk info: ("+ run.getDiskInfo()+")");
-            
-            Gui.chartPanel.getChart().getTitle().setVisible(true);
-            Gui.chartPanel.getChart().getTitle().setText(run.getDiskInfo());
-            
-            for (int m=startFileNum; m<startFileNum+App.numOfMarks && !isCancelled(); m++) {
-                
-                if (App.multiFile == true) {
-                    testFile = new File(dataDir.getAbsolutePath()
-                            + File.separator+"testdata"+m+".jdm");
-                }
-                rMark = new DiskMark(READ);
-                rMark.setMarkNum(m);
-                long startTime = System.nanoTime();
-                long totalBytesReadInMark = 0;
-
-                try {
-                    try (RandomAccessFile rAccFile = new RandomAccessFile(testFile,"r")) {
-                        for (int b=0; b<numOfBlocks; b++) {
-                            if (App.blockSequence == DiskRun.BlockSequence.RANDOM) {
-                                int rLoc = Util.randInt(0, numOfBlocks-1);
-                                rAccFile.seek(rLoc*blockSize);
-                            } else {
-                                rAccFile.seek(b*blockSize);
-                            }
-                            rAccFile.readFully(blockArr, 0, blockSize);
-                            totalBytesReadInMark += blockSize;
-                            rUnitsComplete++;
-                            unitsComplete = rUnitsComplete + wUnitsComplete;
-                            percentComplete = (float)unitsComplete/(float)unitsTotal * 100f;
-                            setProgress((int)percentComplete);
-                        }
-                    }
-                } catch (FileNotFoundException ex) {
-                    Logger.getLogger(App.class.getName()).log(Level.SEVERE, null, ex);
-                } catch (IOException ex) {
-                    Logger.getLogger(App.class.getName()).log(Level.SEVERE, null, ex);
-                }
-                long endTime = System.nanoTime();
-                long elapsedTimeNs = endTime - startTime;
-                double sec = (double)elapsedTimeNs / (double)1000000000;
-                double mbRead = (double) totalBytesReadInMark / (double) MEGABYTE;
-                rMark.setBwMbSec(mbRead / sec);
-                msg("m:"+m+" READ IO is "+rMark.getBwMbSec()+" MB/s    "
-                        + "(MBread "+mbRead+" in "+sec+" sec)");
-                App.updateMetrics(rMark);
-                publish(rMark);
-                
-                run.setRunMax(rMark.getCumMax());
-                run.setRunMin(rMark.getCumMin());
-                run.setRunAvg(rMark.getCumAvg());
-                run.setEndTime(new Date());
-            }
-            
-            EntityManager em = EM.getEntityManager();
-            em.getTransaction().begin();
-            em.persist(run);
-            em.getTransaction().commit();
-            
-            Gui.runPanel.addRun(run);
+    }
+    
+    @Override
+    public void runStarted(DiskRun run) {
+        Gui.chartPanel.getChart().getTitle().setVisible(true);
+        Gui.chartPanel.getChart().getTitle().setText(run.getDiskInfo());
+    }
+    
+    @Override
+    public void markComplete(DiskMark mark) {
+        publish(mark);
+    }
+    
+    @Override
+    public void throughputSampled(DiskRun.IOMode mode, double position, double mbSec) {
+        SwingUtilities.invokeLater(() -> Gui.addSample(mode, position, mbSec));
+    }
+    
+    @Override
+    public void runComplete(DiskRun run, boolean stored) {
+        if (stored) {
+            Gui.runPanel.reload();
         }
-        App.nextMarkNumber += App.numOfMarks;      
-        return true;
+    }
+    
+    @Override
+    public void clearCache() {
+        JOptionPane.showMessageDialog(Gui.mainFrame, 
+            "For valid READ measurements please clear the disk cache by\n" +
+            "using the included RAMMap.exe or flushmem.exe utilities.\n" +
+            "Removable drives can be disconnected and reconnected.\n" +
+            "For system drives use the WRITE and READ operations \n" +
+            "independantly by doing a cold reboot after the WRITE",
+            "Clear Disk Cache Now",JOptionPane.PLAIN_MESSAGE);
     }
     
     @Override
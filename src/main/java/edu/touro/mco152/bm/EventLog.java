@@ -0,0 +1,208 @@
+package edu.touro.mco152.bm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Carries log events from the threads that raise them to wherever they are
+ * shown or kept, the event view of the GUI, stderr of the CLI and the log
+ * file. Logging an event only puts it on a lock free queue, a consumer thread
+ * of its own takes whatever has queued up every DRAIN_MS and hands it to the
+ * sinks as one batch, so no thread of the benchmark ever waits for a console,
+ * a file or Swing.
+ *
+ * The queue holds at most capacity events. When it is full new events are
+ * dropped and counted rather than making the caller wait, and the consumer
+ * reports how many were lost.
+ */
+public class EventLog {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+    /** time between batches */
+    static final long DRAIN_MS = 100;
+
+    public static enum Severity { INFO, WARNING, ERROR; }
+
+    /**
+     * One log event, immutable.
+     */
+    public static final class Event {
+        private final long timeMs;
+        private final Severity severity;
+        private final String thread;
+        private final String message;
+
+        public Event(long timeMs, Severity severity, String thread, String message) {
+            this.timeMs = timeMs;
+            this.severity = severity;
+            this.thread = thread;
+            this.message = message;
+        }
+
+        public long getTimeMs() {
+            return timeMs;
+        }
+
+        public Severity getSeverity() {
+            return severity;
+        }
+
+        public String getThread() {
+            return thread;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    /**
+     * Receives the events in batches, always on the consumer thread.
+     */
+    public interface Sink {
+        /**
+         * @param batch events in the order they were logged
+         */
+        void write(List<Event> batch);
+
+        /**
+         * Called once the sink is removed or the log shut down.
+         */
+        default void close() {
+        }
+    }
+
+    private final int capacity;
+    private final ConcurrentLinkedQueue<Event> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private final List<Sink> sinks = new CopyOnWriteArrayList<>();
+    private Thread consumer = null;
+    private volatile boolean running = false;
+
+    /**
+     * @param capacity most events waiting for the consumer
+     */
+    public EventLog(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Log an informational message.
+     * @param message the text
+     * @return false if the queue was full and the message dropped
+     */
+    public boolean log(String message) {
+        return log(Severity.INFO, message);
+    }
+
+    /**
+     * Queue an event for the sinks, never waits.
+     * @param severity how serious it is
+     * @param message the text
+     * @return false if the queue was full and the event dropped
+     */
+    public boolean log(Severity severity, String message) {
+        if (queued.incrementAndGet() > capacity) {
+            queued.decrementAndGet();
+            dropped.increment();
+            return false;
+        }
+        queue.offer(new Event(System.currentTimeMillis(), severity,
+                Thread.currentThread().getName(), message));
+        return true;
+    }
+
+    /**
+     * Add a sink, starting the consumer thread with the first one.
+     * @param sink receives every event logged from now on
+     */
+    public synchronized void addSink(Sink sink) {
+        sinks.add(sink);
+        if (consumer == null) {
+            running = true;
+            consumer = new Thread(this::consume, "event-log");
+            consumer.setDaemon(true);
+            consumer.start();
+        }
+    }
+
+    /**
+     * Remove a sink after passing it whatever is still queued.
+     * @param sink the sink
+     */
+    public void removeSink(Sink sink) {
+        flush();
+        if (sinks.remove(sink)) {
+            sink.close();
+        }
+    }
+
+    private void consume() {
+        while (running) {
+            flush();
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(DRAIN_MS));
+        }
+    }
+
+    /**
+     * Hand everything queued so far to the sinks now, on the calling thread,
+     * eg. before the program exits.
+     */
+    public synchronized void flush() {
+        List<Event> batch = new ArrayList<>();
+        long lost = dropped.sumThenReset();
+        if (lost > 0) {
+            batch.add(new Event(System.currentTimeMillis(), Severity.WARNING,
+                    Thread.currentThread().getName(),
+                    lost+" log events dropped, the log fell behind"));
+        }
+        Event event;
+        while ((event = queue.poll()) != null) {
+            queued.decrementAndGet();
+            batch.add(event);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        for (Sink sink : sinks) {
+            try {
+                sink.write(batch);
+            } catch (RuntimeException ex) {
+                // one broken sink must not keep the events from the others
+                Logger.getLogger(App.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+    }
+
+    /**
+     * Deliver what is left, close the sinks and stop the consumer thread.
+     */
+    public synchronized void shutdown() {
+        running = false;
+        flush();
+        for (Sink sink : sinks) {
+            sink.close();
+        }
+        sinks.clear();
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+            consumer = null;
+        }
+    }
+
+    /**
+     * @return events dropped since the consumer last reported them
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+}
@@ -0,0 +1,219 @@
+
+package edu.touro.mco152.bm;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
+
+/**
+ * Stamps written blocks with a header and checks it when they are read back,
+ * so a run shows not only how fast the drive is but that it returned what
+ * was written. The header takes the first HEADER_SIZE bytes of a block:
+ *
+ *   0  magic      int
+ *   4  crc        int, CRC32C of the payload after the header
+ *   8  offset     long, position of the block in its file
+ *   16 runId      long, identifies the benchmark that wrote the block
+ *   24 sequence   long, order the block was written in
+ *
+ * The test files are reused from one benchmark to the next and not cut
+ * back, so a block read may still be one an earlier benchmark wrote, eg.
+ * where a random block order skipped it. Such a block is counted as stale,
+ * not as a mismatch, as long as it is intact for the run that wrote it.
+ *
+ * Checking is done by a small pool of threads so the I/O threads only hand
+ * blocks over. Time spent computing checksums is summed separately so it
+ * can be compared with the time spent on I/O.
+ */
+public class IntegrityChecker {
+
+    public static final int HEADER_SIZE = 32;
+    static final int MAGIC = 0x4A444D4B;
+
+    private final long runId;
+    private final ExecutorService verifiers;
+    private final ThreadLocal<CRC32C> crcs = ThreadLocal.withInitial(CRC32C::new);
+    private final AtomicInteger pending = new AtomicInteger();
+    private final LongAdder verified = new LongAdder();
+    private final LongAdder mismatches = new LongAdder();
+    private final LongAdder unwritten = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+    private final LongAdder checksumNs = new LongAdder();
+    private final AtomicReference<String> firstMismatch = new AtomicReference<>();
+
+    /**
+     * @param runId written into every block, and expected in every block read
+     * @param threads number of threads checking blocks
+     */
+    public IntegrityChecker(long runId, int threads) {
+        this.runId = runId;
+        verifiers = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "jdm-verify");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public long getRunId() {
+        return runId;
+    }
+
+    /**
+     * Checksum the payload of a block, everything after the header.
+     * @param block a full block
+     * @return the CRC32C of the payload
+     */
+    public int payloadCrc(ByteBuffer block) {
+        long start = System.nanoTime();
+        CRC32C crc = crcs.get();
+        crc.reset();
+        ByteBuffer payload = block.duplicate();
+        payload.limit(payload.capacity()).position(HEADER_SIZE);
+        crc.update(payload);
+        checksumNs.add(System.nanoTime() - start);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Write the header of a block about to be written.
+     * @param block the block, its payload must match payloadCrc
+     * @param payloadCrc from payloadCrc
+     * @param offset position the block is written at
+     * @param sequence order of the write
+     */
+    public void stamp(ByteBuffer block, int payloadCrc, long offset, long sequence) {
+        block.putInt(0, MAGIC);
+        block.putInt(4, payloadCrc);
+        block.putLong(8, offset);
+        block.putLong(16, runId);
+        block.putLong(24, sequence);
+    }
+
+    /**
+     * Check a block that has been read on one of the checking threads.
+     * @param block the block read
+     * @param offset position it was read from
+     * @param done run once the block has been checked and can be reused
+     */
+    public void verify(ByteBuffer block, long offset, Runnable done) {
+        pending.incrementAndGet();
+        verifiers.execute(() -> {
+            try {
+                check(block, offset);
+            } finally {
+                done.run();
+                if (pending.decrementAndGet() == 0) {
+                    synchronized (pending) {
+                        pending.notifyAll();
+                    }
+                }
+            }
+        });
+    }
+
+    void check(ByteBuffer block, long offset) {
+        int magic = block.getInt(0);
+        if (magic == 0 && block.getLong(8) == 0 && block.getLong(16) == 0) {
+            // never written, eg. skipped by a random block order
+            unwritten.increment();
+            return;
+        }
+        String problem = null;
+        if (magic != MAGIC) {
+            problem = "no block header";
+        } else if (block.getLong(8) != offset) {
+            problem = "block written at offset " + block.getLong(8);
+        } else if (block.getInt(4) != payloadCrc(block)) {
+            problem = "checksum mismatch, sequence " + block.getLong(24);
+        }
+        boolean old = magic == MAGIC && block.getLong(16) != runId;
+        if (problem == null && old) {
+            // intact, only not rewritten by this benchmark
+            stale.increment();
+            return;
+        }
+        verified.increment();
+        if (problem != null) {
+            if (old) {
+                problem += " in a block from run " + block.getLong(16);
+            }
+            mismatches.increment();
+            firstMismatch.compareAndSet(null, "offset " + offset + ": " + problem);
+        }
+    }
+
+    /**
+     * Wait until every block handed to verify has been checked.
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void awaitIdle() throws InterruptedException {
+        synchronized (pending) {
+            while (pending.get() > 0) {
+                pending.wait();
+            }
+        }
+    }
+
+    /**
+     * Clear the counts, eg. at the start of a run.
+     */
+    public void reset() {
+        verified.reset();
+        mismatches.reset();
+        unwritten.reset();
+        stale.reset();
+        checksumNs.reset();
+        firstMismatch.set(null);
+    }
+
+    /**
+     * @return blocks read back that this benchmark wrote, and blocks of any
+     * benchmark found bad
+     */
+    public long getVerified() {
+        return verified.sum();
+    }
+
+    /**
+     * @return blocks read back that were not what was written
+     */
+    public long getMismatches() {
+        return mismatches.sum();
+    }
+
+    /**
+     * @return blocks read back that were never written
+     */
+    public long getUnwritten() {
+        return unwritten.sum();
+    }
+
+    /**
+     * @return intact blocks read back that an earlier benchmark wrote
+     */
+    public long getStale() {
+        return stale.sum();
+    }
+
+    /**
+     * @return nanoseconds spent computing checksums, summed over all threads
+     */
+    public long getChecksumNs() {
+        return checksumNs.sum();
+    }
+
+    /**
+     * @return a description of the first mismatch, or null if there was none
+     */
+    public String getFirstMismatch() {
+        return firstMismatch.get();
+    }
+
+    public void shutdown() {
+        verifiers.shutdownNow();
+    }
+}
@@ -0,0 +1,82 @@
+
+package edu.touro.mco152.bm;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bytes, blocks and latencies of one type of operation (reads or writes)
+ * within a mark. Everything is safe to update from several I/O threads.
+ */
+public class IoStats {
+
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder blocks = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram syncLatency = new LatencyHistogram();
+    private final AtomicLong elapsedNs = new AtomicLong();
+
+    /**
+     * Count one completed block.
+     * @param size bytes in the block
+     */
+    public void addBlock(int size) {
+        bytes.add(size);
+        blocks.increment();
+    }
+
+    /**
+     * Note that a thread doing these operations is done.
+     * @param elapsedNs time from the start of the mark until then
+     */
+    public void finished(long elapsedNs) {
+        this.elapsedNs.accumulateAndGet(elapsedNs, Math::max);
+    }
+
+    /**
+     * Add the counts of another IoStats, eg. to total several files.
+     * @param other the stats to add
+     */
+    public void add(IoStats other) {
+        bytes.add(other.getBytes());
+        blocks.add(other.getBlocks());
+        latency.add(other.latency);
+        syncLatency.add(other.syncLatency);
+        finished(other.getElapsedNs());
+    }
+
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    public long getBlocks() {
+        return blocks.sum();
+    }
+
+    /**
+     * @return time until the last thread doing these operations was done
+     */
+    public long getElapsedNs() {
+        return elapsedNs.get();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return latencies of the calls that flushed written blocks to the
+     *         device, kept apart from the latencies of the blocks
+     */
+    public LatencyHistogram getSyncLatency() {
+        return syncLatency;
+    }
+
+    public void reset() {
+        bytes.reset();
+        blocks.reset();
+        latency.reset();
+        syncLatency.reset();
+        elapsedNs.set(0);
+    }
+}
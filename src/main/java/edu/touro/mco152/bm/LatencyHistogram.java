@@ -0,0 +1,133 @@
+
+package edu.touro.mco152.bm;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed memory log-linear histogram of I/O latencies in nanoseconds.
+ *
+ * Values below SUB_BUCKETS are counted exactly. Above that each power of two
+ * is split into SUB_BUCKETS/2 linear buckets, so every recorded value is off
+ * by at most 1/32 (about 3%) of itself. The bucket array is sized once for
+ * the whole trackable range and recording never allocates, which keeps it
+ * cheap enough to call around every block. Counts are atomic so I/O threads
+ * and completion handlers can all record into one histogram.
+ */
+public class LatencyHistogram {
+
+    static final int SUB_BUCKET_BITS = 6;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+    /** largest trackable latency, about 18 minutes, larger values are clamped */
+    static final long MAX_VALUE = (1L << 40) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(indexOf(MAX_VALUE) + 1);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalValue = new AtomicLong();
+    private final AtomicLong minValue = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong maxValue = new AtomicLong();
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int bucket = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+        return bucket * HALF_SUB_BUCKETS + (int) (value >>> bucket);
+    }
+
+    static long lowestValueAt(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int bucket = (index >> (SUB_BUCKET_BITS - 1)) - 1;
+        return (long) (index - bucket * HALF_SUB_BUCKETS) << bucket;
+    }
+
+    static long highestValueAt(int index) {
+        return lowestValueAt(index + 1) - 1;
+    }
+
+    /**
+     * Record one latency.
+     * @param valueNs latency in nanoseconds
+     */
+    public void record(long valueNs) {
+        if (valueNs < 0) {
+            valueNs = 0;
+        } else if (valueNs > MAX_VALUE) {
+            valueNs = MAX_VALUE;
+        }
+        counts.incrementAndGet(indexOf(valueNs));
+        totalCount.incrementAndGet();
+        totalValue.addAndGet(valueNs);
+        minValue.accumulateAndGet(valueNs, Math::min);
+        maxValue.accumulateAndGet(valueNs, Math::max);
+    }
+
+    /**
+     * Add all the counts of another histogram to this one.
+     * @param other the histogram to add
+     */
+    public void add(LatencyHistogram other) {
+        for (int i=0; i<counts.length(); i++) {
+            long c = other.counts.get(i);
+            if (c != 0) {
+                counts.addAndGet(i, c);
+            }
+        }
+        totalCount.addAndGet(other.totalCount.get());
+        totalValue.addAndGet(other.totalValue.get());
+        minValue.accumulateAndGet(other.minValue.get(), Math::min);
+        maxValue.accumulateAndGet(other.maxValue.get(), Math::max);
+    }
+
+    public void reset() {
+        for (int i=0; i<counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalValue.set(0);
+        minValue.set(Long.MAX_VALUE);
+        maxValue.set(0);
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    public long getMin() {
+        return getCount() == 0 ? 0 : minValue.get();
+    }
+
+    public long getMax() {
+        return maxValue.get();
+    }
+
+    public double getMean() {
+        long n = getCount();
+        return n == 0 ? 0 : (double) totalValue.get() / n;
+    }
+
+    /**
+     * Get the latency that the given percentage of recorded values are at or
+     * below. The result is the top of the bucket, so it errs on the high side.
+     * @param percentile between 0 and 100
+     * @return latency in nanoseconds
+     */
+    public long getValueAtPercentile(double percentile) {
+        long n = getCount();
+        if (n == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100d * n));
+        long seen = 0;
+        for (int i=0; i<counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestValueAt(i), getMax());
+            }
+        }
+        return getMax();
+    }
+}
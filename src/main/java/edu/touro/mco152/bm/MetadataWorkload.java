@@ -0,0 +1,225 @@
+
+package edu.touro.mco152.bm;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Creates, stats, reads and deletes many small files spread over a tree of
+ * directories, the way builds and CI jobs use a file system. Each operation
+ * is run over every file as a step of its own, on numThreads threads that
+ * each take every n-th file, so its rate and latencies are not mixed up
+ * with the others. Setting up and removing the directories is not timed.
+ */
+public class MetadataWorkload {
+
+    public enum Op { CREATE, STAT, READ, DELETE; }
+
+    private final File root;
+    private final int numFiles;
+    private final int filesPerDir;
+    private final int numThreads;
+    private final byte[] content;
+    private final ExecutorService pool;
+    private final LongAdder opsComplete = new LongAdder();
+    private final Map<Op, LatencyHistogram> latencies = new EnumMap<>(Op.class);
+    private final Map<Op, Long> elapsedNs = new EnumMap<>(Op.class);
+
+    /**
+     * @param root directory the tree is created in
+     * @param numFiles files in the tree
+     * @param filesPerDir files in each directory of the tree
+     * @param numThreads threads running each operation
+     * @param content what every file is created with
+     */
+    public MetadataWorkload(File root, int numFiles, int filesPerDir, int numThreads,
+            byte[] content) {
+        this.root = root;
+        this.numFiles = numFiles;
+        this.filesPerDir = Math.max(1, filesPerDir);
+        this.numThreads = Math.max(1, numThreads);
+        this.content = content;
+        pool = Executors.newFixedThreadPool(this.numThreads);
+        for (Op op : Op.values()) {
+            latencies.put(op, new LatencyHistogram());
+            elapsedNs.put(op, 0L);
+        }
+    }
+
+    /**
+     * Create the directories of the tree, untimed.
+     * @throws IOException if a directory can not be created
+     */
+    public void setUp() throws IOException {
+        for (int d=0; d*filesPerDir<numFiles; d++) {
+            Files.createDirectories(dirOf(d * filesPerDir));
+        }
+    }
+
+    /**
+     * Remove the tree and anything left in it, untimed.
+     */
+    public void tearDown() {
+        Util.deleteDirectory(root);
+    }
+
+    /**
+     * Run one operation over every file.
+     * @param op the operation
+     * @param cancelled checked before each file
+     * @throws IOException if an operation failed, once every thread has
+     *                     stopped
+     * @throws InterruptedException if the calling thread was interrupted,
+     *                              once every thread has stopped
+     */
+    public void run(Op op, BooleanSupplier cancelled)
+            throws IOException, InterruptedException {
+        LatencyHistogram latency = latencies.get(op);
+        long startTime = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>(numThreads);
+        // stops the other threads at their next file once one has failed
+        AtomicBoolean stop = new AtomicBoolean();
+        for (int t=0; t<numThreads; t++) {
+            final int first = t;
+            futures.add(pool.submit(() -> {
+                // every thread reads into a buffer of its own
+                ByteBuffer buffer = ByteBuffer.allocate(content.length);
+                for (int i=first; i<numFiles && !stop.get()
+                        && !cancelled.getAsBoolean(); i+=numThreads) {
+                    long opStart = System.nanoTime();
+                    perform(op, fileOf(i), buffer);
+                    latency.record(System.nanoTime() - opStart);
+                    opsComplete.increment();
+                }
+                return null;
+            }));
+        }
+        // every thread is waited for, even after a failure or an interrupt,
+        // so none is still at work once the files are torn down
+        ExecutionException failure = null;
+        InterruptedException interrupted = null;
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (ExecutionException ex) {
+                    stop.set(true);
+                    if (failure == null) {
+                        failure = ex;
+                    }
+                    break;
+                } catch (InterruptedException ex) {
+                    stop.set(true);
+                    interrupted = ex;
+                }
+            }
+        }
+        elapsedNs.put(op, System.nanoTime() - startTime);
+        if (failure != null) {
+            if (interrupted != null) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure.getCause() instanceof IOException) {
+                throw (IOException) failure.getCause();
+            }
+            throw new IOException(failure.getCause());
+        }
+        if (interrupted != null) {
+            throw interrupted;
+        }
+    }
+
+    private void perform(Op op, Path file, ByteBuffer buffer) throws IOException {
+        switch (op) {
+            case CREATE:
+                Files.write(file, content, StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.WRITE);
+                break;
+            case STAT:
+                Files.readAttributes(file, BasicFileAttributes.class);
+                break;
+            case READ:
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    buffer.clear();
+                    while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                        // keep reading, a small file usually comes in one go
+                    }
+                }
+                break;
+            case DELETE:
+            default:
+                Files.delete(file);
+                break;
+        }
+    }
+
+    private Path dirOf(int i) {
+        return root.toPath().resolve("d" + (i / filesPerDir));
+    }
+
+    private Path fileOf(int i) {
+        return dirOf(i).resolve("f" + i);
+    }
+
+    /**
+     * @return operations completed since the workload was created
+     */
+    public long getOpsComplete() {
+        return opsComplete.sum();
+    }
+
+    /**
+     * @param op the operation
+     * @return times the operation was completed
+     */
+    public long getCount(Op op) {
+        return latencies.get(op).getCount();
+    }
+
+    /**
+     * @param op the operation
+     * @return latencies of the operation
+     */
+    public LatencyHistogram getLatency(Op op) {
+        return latencies.get(op);
+    }
+
+    /**
+     * @param op the operation
+     * @return nanoseconds it took to run the operation over every file
+     */
+    public long getElapsedNs(Op op) {
+        return elapsedNs.get(op);
+    }
+
+    /**
+     * @param op the operation
+     * @return operations per second, 0 if the operation was not run
+     */
+    public double getOpsPerSec(Op op) {
+        long ns = getElapsedNs(op);
+        return ns == 0 ? 0 : getCount(op) / (ns / 1e9);
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
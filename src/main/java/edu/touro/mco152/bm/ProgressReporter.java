@@ -0,0 +1,103 @@
+package edu.touro.mco152.bm;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Publishes how far a benchmark has got from a timer thread of its own, so
+ * reporting progress costs the I/O threads nothing beyond counting their
+ * blocks. Every interval it reads the share done and the bytes moved, works
+ * out the time left from the rate so far and passes all three on. Nothing is
+ * passed on while the whole percentage has not changed.
+ */
+public class ProgressReporter {
+
+    /**
+     * Called from the timer thread with the latest progress.
+     */
+    public interface Listener {
+        /**
+         * @param percent share of the benchmark done, 0 to 100
+         * @param bytesDone bytes read and written so far
+         * @param etaMs estimated milliseconds left, -1 until there is a rate
+         */
+        void progress(int percent, long bytesDone, long etaMs);
+    }
+
+    private final long intervalMs;
+    private final DoubleSupplier done;
+    private final LongSupplier bytesDone;
+    private final Listener listener;
+    private final ScheduledExecutorService timer;
+    private ScheduledFuture<?> task = null;
+    private long startTime;
+    private int lastPercent = -1;
+
+    /**
+     * @param intervalMs time between reports
+     * @param done share of the benchmark done, 0 to 1
+     * @param bytesDone bytes read and written so far
+     * @param listener told about every change
+     */
+    public ProgressReporter(long intervalMs, DoubleSupplier done, LongSupplier bytesDone,
+            Listener listener) {
+        this.intervalMs = intervalMs;
+        this.done = done;
+        this.bytesDone = bytesDone;
+        this.listener = listener;
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "progress-reporter");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Start reporting, the time left is worked out from now on.
+     */
+    public synchronized void start() {
+        stop();
+        startTime = System.nanoTime();
+        lastPercent = -1;
+        task = timer.scheduleAtFixedRate(this::report, intervalMs, intervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Report the progress now if it has changed since the last report.
+     */
+    public synchronized void report() {
+        double share = Math.max(0, Math.min(1, done.getAsDouble()));
+        int percent = (int) (share * 100);
+        if (percent == lastPercent) {
+            return;
+        }
+        lastPercent = percent;
+        long elapsedMs = (System.nanoTime() - startTime) / 1000000;
+        long etaMs = share > 0 ? (long) (elapsedMs * (1 - share) / share) : -1;
+        listener.progress(percent, bytesDone.getAsLong(), etaMs);
+    }
+
+    /**
+     * Stop reporting after one last report, so the final progress is seen.
+     */
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+            report();
+        }
+    }
+
+    /**
+     * Stop the timer thread for good.
+     */
+    public void shutdown() {
+        stop();
+        timer.shutdownNow();
+    }
+}
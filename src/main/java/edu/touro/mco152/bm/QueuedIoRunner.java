@@ -0,0 +1,469 @@
+
+package edu.touro.mco152.bm;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import edu.touro.mco152.bm.io.IOEngine;
+import edu.touro.mco152.bm.persist.DiskRun;
+
+/**
+ * Runs the blocks of a mark with several I/O requests outstanding at once,
+ * the way CrystalDiskMark's Q32T16 style tests do. numThreads workers each
+ * keep queueDepth requests in flight. Blocking engines can only have one
+ * request in flight per thread, so each worker's queue is served by
+ * queueDepth threads of its own, giving numThreads x queueDepth I/O slots.
+ * Asynchronous engines keep their own queue full, so they get one slot per
+ * worker. When that works out to a single slot the blocks are run on the
+ * calling thread and no pool is created.
+ *
+ * Every slot has its own engine and buffer and takes every n-th entry of the
+ * mark's precomputed block order. Completed blocks and bytes are summed in
+ * lock free counters so the slots never contend with each other on the hot
+ * path. Each slot also counts its blocks in a counter only it writes, which
+ * is all the progress reporting costs the slot, whoever wants to know how
+ * far a mark has got reads the counters from a thread of its own.
+ *
+ * Writes cycle through a pool of blocks copied once from the generated
+ * data, shared read only by the slots, while reads land in the slot's own
+ * buffer so they never overwrite the pool.
+ *
+ * Several files can be run at once, each with its own full set of slots, the
+ * way an application writing many segment files at the same time would.
+ *
+ * With integrity checking on every block written gets its own header, so
+ * each slot writes from a private ring of buffers instead, and reads go into
+ * a ring whose buffers stay busy until the block has been checked. That way
+ * checking overlaps the I/O instead of adding to it.
+ */
+public class QueuedIoRunner {
+
+    /** blocks per slot that can wait to be checked before reads stall */
+    static final int VERIFY_BACKLOG = 4;
+    static final long RING_WAIT_NS = 20000;
+    /** longs between slot counters, so no two share a cache line */
+    static final int COUNTER_STRIDE = 8;
+
+    private final int numSlots;
+    private final int slotsPerFile;
+    private final int blockSize;
+    private final IOEngine[] engines;
+    private final ByteBuffer[] buffers;
+    /** per slot views of the write pool, so each tracks its own position */
+    private final ByteBuffer[][] writeBuffers;
+    private final ExecutorService pool;
+    private final AtomicLongArray blocksComplete;
+    private IntegrityChecker integrity = null;
+    private volatile boolean verifyReads = false;
+    private DiskRun.SyncPolicy syncPolicy = DiskRun.SyncPolicy.NONE;
+    private int syncEvery = 1;
+    private Ring[] writeRings = null;
+    private Ring[] readRings = null;
+    // slots the last mark ran, the others still hold an earlier mark's times
+    private int activeSlots = 1;
+
+    /**
+     * @param type engine used by every slot
+     * @param numFiles most files run at the same time
+     * @param numThreads number of workers per file
+     * @param queueDepth requests each worker keeps outstanding
+     * @param data blocks to write in turn, eg. from DataGenerator.createPool,
+     *             each is copied once into a buffer of the engine's choosing
+     */
+    public QueuedIoRunner(DiskRun.EngineType type, int numFiles, int numThreads,
+            int queueDepth, ByteBuffer[] data) {
+        IOEngine first = IOEngine.create(type);
+        slotsPerFile = first.getQueueDepth() > 1 ? numThreads : numThreads * queueDepth;
+        numSlots = slotsPerFile * Math.max(1, numFiles);
+        blockSize = data[0].capacity();
+        ByteBuffer[] dataPool = new ByteBuffer[data.length];
+        for (int i=0; i<data.length; i++) {
+            dataPool[i] = first.allocateBuffer(blockSize);
+            data[i].clear();
+            dataPool[i].put(data[i]);
+        }
+        engines = new IOEngine[numSlots];
+        buffers = new ByteBuffer[numSlots];
+        writeBuffers = new ByteBuffer[numSlots][dataPool.length];
+        for (int s=0; s<numSlots; s++) {
+            engines[s] = s == 0 ? first : IOEngine.create(type);
+            buffers[s] = engines[s].allocateBuffer(blockSize);
+            for (int i=0; i<dataPool.length; i++) {
+                writeBuffers[s][i] = dataPool[i].duplicate();
+            }
+        }
+        blocksComplete = new AtomicLongArray(numSlots * COUNTER_STRIDE);
+        pool = numSlots > 1 ? Executors.newFixedThreadPool(numSlots) : null;
+    }
+
+    /**
+     * Stamp every block written with a header from now on. The payload of
+     * each slot's write buffers is checksummed here, once.
+     * @param integrity stamps and checks the blocks
+     */
+    public void enableIntegrity(IntegrityChecker integrity) {
+        this.integrity = integrity;
+        writeRings = new Ring[numSlots];
+        readRings = new Ring[numSlots];
+        for (int s=0; s<numSlots; s++) {
+            IOEngine engine = engines[s];
+            int inFlight = engine.reportsCompletion() ? engine.getQueueDepth() + 1 : 1;
+            writeRings[s] = new Ring(inFlight);
+            for (int i=0; i<inFlight; i++) {
+                ByteBuffer data = writeBuffers[s][(s + i) % writeBuffers[s].length];
+                ByteBuffer buffer = engine.allocateBuffer(blockSize);
+                data.clear();
+                buffer.put(data);
+                writeRings[s].buffers[i] = buffer;
+                writeRings[s].crcs[i] = integrity.payloadCrc(buffer);
+            }
+            readRings[s] = new Ring(inFlight + VERIFY_BACKLOG);
+            for (int i=0; i<readRings[s].buffers.length; i++) {
+                readRings[s].buffers[i] = engine.allocateBuffer(blockSize);
+            }
+            final int slot = s;
+            engine.setCompletionListener((buffer, position, write, ok)
+                    -> completed(slot, buffer, position, write, ok));
+        }
+    }
+
+    /**
+     * @param verifyReads check every block read against its header, only
+     *                    meaningful once the blocks have been written with
+     *                    integrity enabled
+     */
+    public void setVerifyReads(boolean verifyReads) {
+        this.verifyReads = verifyReads;
+    }
+
+    /**
+     * Set how the writes of the following marks are made durable.
+     * @param syncPolicy O_DSYNC and O_SYNC are open flags, the FORCE policies
+     *                   force the file every syncEvery blocks a slot writes
+     *                   and END_OF_MARK once when the slot is done
+     * @param syncEvery blocks written between forces
+     */
+    public void setSyncPolicy(DiskRun.SyncPolicy syncPolicy, int syncEvery) {
+        this.syncPolicy = syncPolicy;
+        this.syncEvery = Math.max(1, syncEvery);
+    }
+
+    private void completed(int slot, ByteBuffer buffer, long position,
+            boolean write, boolean ok) {
+        if (write) {
+            writeRings[slot].release(buffer);
+        } else if (ok && verifyReads) {
+            Ring ring = readRings[slot];
+            integrity.verify(buffer, position, () -> ring.release(buffer));
+        } else {
+            readRings[slot].release(buffer);
+        }
+    }
+
+    /**
+     * @return blocks completed since the runner was created
+     */
+    public long getBlocksComplete() {
+        long sum = 0;
+        for (int s=0; s<numSlots; s++) {
+            sum += blocksComplete.get(s * COUNTER_STRIDE);
+        }
+        return sum;
+    }
+
+    /**
+     * @return the engine of the first slot, eg. to query its properties
+     */
+    public IOEngine getEngine() {
+        return engines[0];
+    }
+
+    /**
+     * @return nanoseconds the slots of the last mark spent forcing writes,
+     *         summed over them
+     */
+    public long getForceTimeNs() {
+        long sum = 0;
+        for (int s=0; s<activeSlots; s++) {
+            sum += engines[s].getForceTimeNs();
+        }
+        return sum;
+    }
+
+    /**
+     * @return nanoseconds the slots of the last mark spent in completion
+     *         handlers, summed over them
+     */
+    public long getHandlerTimeNs() {
+        long sum = 0;
+        for (int s=0; s<activeSlots; s++) {
+            sum += engines[s].getHandlerTimeNs();
+        }
+        return sum;
+    }
+
+    /**
+     * Read and/or write the blocks of one file using every slot.
+     * @see #runMark(File[], int, int[], IoStats[], IoStats[], BooleanSupplier)
+     */
+    public void runMark(File file, int readPercent, int[] blocks,
+            IoStats readStats, IoStats writeStats, BooleanSupplier cancelled)
+            throws IOException, InterruptedException {
+        runMark(new File[] {file}, readPercent, blocks, new IoStats[] {readStats},
+                new IoStats[] {writeStats}, cancelled);
+    }
+
+    /**
+     * Read and/or write the blocks of each file at the same time, each file
+     * with its own slots. Reads and writes are interleaved evenly at the
+     * given ratio.
+     *
+     * @param files the test data files, at most numFiles of them
+     * @param readPercent share of blocks that are read, 0 for a pure write
+     *                    mark and 100 for a pure read mark
+     * @param blocks block numbers in the order they are visited, from
+     *               AccessPattern.generate
+     * @param readStats accounting for the blocks read, one per file
+     * @param writeStats accounting for the blocks written, one per file
+     * @param cancelled checked before each block
+     * @throws IOException if any slot failed, once every slot has stopped
+     * @throws InterruptedException if the calling thread was interrupted,
+     *                              once every slot has stopped
+     */
+    public void runMark(File[] files, int readPercent, int[] blocks,
+            IoStats[] readStats, IoStats[] writeStats, BooleanSupplier cancelled)
+            throws IOException, InterruptedException {
+        long startTime = System.nanoTime();
+        if (pool == null) {
+            activeSlots = 1;
+            runSlot(0, files[0], readPercent, blocks,
+                    readStats[0], writeStats[0], cancelled, startTime);
+            return;
+        }
+        activeSlots = Math.min(numSlots, files.length * slotsPerFile);
+        List<Future<?>> futures = new ArrayList<>(activeSlots);
+        // stops the other slots at their next block once one has failed
+        AtomicBoolean stop = new AtomicBoolean();
+        BooleanSupplier stopped = () -> stop.get() || cancelled.getAsBoolean();
+        for (int s=0; s<activeSlots; s++) {
+            final int slot = s;
+            final int f = s / slotsPerFile;
+            futures.add(pool.submit(() -> {
+                runSlot(slot, files[f], readPercent, blocks,
+                        readStats[f], writeStats[f], stopped, startTime);
+                return null;
+            }));
+        }
+        // every slot is waited for, even after a failure or an interrupt,
+        // the next mark reuses their engines, buffers and stats
+        ExecutionException failure = null;
+        InterruptedException interrupted = null;
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (ExecutionException ex) {
+                    stop.set(true);
+                    if (failure == null) {
+                        failure = ex;
+                    }
+                    break;
+                } catch (InterruptedException ex) {
+                    stop.set(true);
+                    interrupted = ex;
+                }
+            }
+        }
+        if (failure != null) {
+            if (interrupted != null) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure.getCause() instanceof IOException) {
+                throw (IOException) failure.getCause();
+            }
+            throw new IOException(failure.getCause());
+        }
+        if (interrupted != null) {
+            throw interrupted;
+        }
+    }
+
+    private void runSlot(int slot, File file, int readPercent,
+            int[] blocks, IoStats readStats,
+            IoStats writeStats, BooleanSupplier cancelled, long startTime)
+            throws IOException {
+        IOEngine engine = engines[slot];
+        ByteBuffer buffer = buffers[slot];
+        ByteBuffer[] writePool = writeBuffers[slot];
+        int counter = slot * COUNTER_STRIDE;
+        // slots start at different points of the pool
+        int nextWrite = slot % writePool.length;
+        engine.setLatencyHistograms(readStats.getLatency(), writeStats.getLatency());
+        boolean timeBlocks = !engine.recordsLatency();
+        Ring writeRing = integrity != null ? writeRings[slot] : null;
+        Ring readRing = integrity != null ? readRings[slot] : null;
+        // the engine tells when a ring buffer is done with, or it is done
+        // with when the call returns
+        boolean notify = integrity != null && !engine.reportsCompletion();
+        if (integrity != null) {
+            // nothing is in flight between marks
+            writeRing.clear();
+            readRing.clear();
+        }
+        long sequence = slot;
+        // reads are spread evenly between writes by carrying the remainder
+        // of readPercent from block to block
+        int readCredit = 0;
+        boolean forcing = syncPolicy == DiskRun.SyncPolicy.FORCE_DATA
+                || syncPolicy == DiskRun.SyncPolicy.FORCE_ALL;
+        int unsynced = 0;
+        engine.open(file, readPercent < 100, syncPolicy);
+        try {
+            for (int b=slot % slotsPerFile; b<blocks.length && !cancelled.getAsBoolean();
+                    b+=slotsPerFile) {
+                long position = (long) blocks[b] * blockSize;
+                readCredit += readPercent;
+                boolean read = readCredit >= 100;
+                if (read) {
+                    readCredit -= 100;
+                }
+                if (read) {
+                    ByteBuffer target = readRing == null ? buffer
+                            : readRing.buffers[readRing.take()];
+                    long blockStart = System.nanoTime();
+                    engine.read(position, target);
+                    if (timeBlocks) {
+                        readStats.getLatency().record(System.nanoTime() - blockStart);
+                    }
+                    if (notify) {
+                        completed(slot, target, position, false, true);
+                    }
+                } else {
+                    ByteBuffer source;
+                    if (writeRing == null) {
+                        source = writePool[nextWrite];
+                        if (++nextWrite == writePool.length) {
+                            nextWrite = 0;
+                        }
+                    } else {
+                        // the sequence numbers of the slots interleave
+                        int r = writeRing.take();
+                        source = writeRing.buffers[r];
+                        integrity.stamp(source, writeRing.crcs[r], position, sequence);
+                        sequence += numSlots;
+                    }
+                    long blockStart = System.nanoTime();
+                    engine.write(position, source);
+                    if (timeBlocks) {
+                        writeStats.getLatency().record(System.nanoTime() - blockStart);
+                    }
+                    if (notify) {
+                        completed(slot, source, position, true, true);
+                    }
+                    unsynced++;
+                    if (forcing && unsynced >= syncEvery) {
+                        sync(engine, writeStats);
+                        unsynced = 0;
+                    }
+                }
+                IoStats stats = read ? readStats : writeStats;
+                stats.addBlock(blockSize);
+                // only this slot writes its counter, so a plain increment
+                // published with lazySet is enough
+                blocksComplete.lazySet(counter, blocksComplete.get(counter) + 1);
+            }
+            // whatever is left is flushed before the mark ends, so every
+            // policy leaves the mark's writes on the device
+            if (unsynced > 0 && (forcing || syncPolicy == DiskRun.SyncPolicy.END_OF_MARK)) {
+                sync(engine, writeStats);
+            }
+        } finally {
+            engine.close();
+            long elapsedNs = System.nanoTime() - startTime;
+            readStats.finished(elapsedNs);
+            writeStats.finished(elapsedNs);
+        }
+    }
+
+    /**
+     * Flush the slot's writes, timed apart from the blocks.
+     */
+    private void sync(IOEngine engine, IoStats writeStats) throws IOException {
+        long start = System.nanoTime();
+        engine.sync(syncPolicy != DiskRun.SyncPolicy.FORCE_DATA);
+        writeStats.getSyncLatency().record(System.nanoTime() - start);
+    }
+
+    /**
+     * Buffers of one slot used in turn. A buffer is busy from take until it
+     * is released, when its transfer, and for a checked read its check, is
+     * done.
+     */
+    static class Ring {
+        final ByteBuffer[] buffers;
+        final int[] crcs;
+        private final AtomicIntegerArray busy;
+        private int next = 0;
+
+        Ring(int size) {
+            buffers = new ByteBuffer[size];
+            crcs = new int[size];
+            busy = new AtomicIntegerArray(size);
+        }
+
+        /**
+         * Wait for a free buffer and mark it busy.
+         * @return its index
+         */
+        int take() {
+            while (true) {
+                for (int i=0; i<buffers.length; i++) {
+                    int r = (next + i) % buffers.length;
+                    if (busy.get(r) == 0) {
+                        busy.set(r, 1);
+                        next = (r + 1) % buffers.length;
+                        return r;
+                    }
+                }
+                LockSupport.parkNanos(RING_WAIT_NS);
+            }
+        }
+
+        void release(ByteBuffer buffer) {
+            for (int i=0; i<buffers.length; i++) {
+                if (buffers[i] == buffer) {
+                    busy.set(i, 0);
+                    return;
+                }
+            }
+        }
+
+        void clear() {
+            for (int i=0; i<buffers.length; i++) {
+                busy.set(i, 0);
+            }
+        }
+    }
+
+    /**
+     * Stop the worker threads once the run is over.
+     */
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package edu.touro.mco152.bm;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes log events to a file, one line each. Once the file would grow past
+ * maxBytes it is renamed to name.1, an existing name.1 to name.2 and so on,
+ * keeping at most keepFiles old files, and a new file is started.
+ */
+public class RotatingFileSink implements EventLog.Sink {
+
+    public static final int DEFAULT_KEEP_FILES = 3;
+
+    private final File file;
+    private final long maxBytes;
+    private final int keepFiles;
+    private final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+    private Writer writer = null;
+    private long size = 0;
+
+    /**
+     * @param file the log file, appended to if it exists
+     * @param maxBytes size a file is rotated at
+     * @param keepFiles old files kept besides the current one
+     */
+    public RotatingFileSink(File file, long maxBytes, int keepFiles) {
+        this.file = file;
+        this.maxBytes = Math.max(1024, maxBytes);
+        this.keepFiles = Math.max(0, keepFiles);
+    }
+
+    @Override
+    public void write(List<EventLog.Event> batch) {
+        try {
+            for (EventLog.Event event : batch) {
+                String line = format.format(new Date(event.getTimeMs()))+" "
+                        + event.getSeverity()+" ["+event.getThread()+"] "
+                        + event.getMessage()+System.lineSeparator();
+                // ASCII mostly, close enough to decide when to rotate
+                if (writer == null || size + line.length() > maxBytes) {
+                    rotate();
+                }
+                writer.write(line);
+                size += line.length();
+            }
+            writer.flush();
+        } catch (IOException ex) {
+            Logger.getLogger(App.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    private void rotate() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+            for (int i=keepFiles; i>0; i--) {
+                File older = new File(file.getPath()+"."+i);
+                File newer = i == 1 ? file : new File(file.getPath()+"."+(i - 1));
+                if (i == keepFiles) {
+                    older.delete();
+                }
+                newer.renameTo(older);
+            }
+            if (keepFiles == 0) {
+                file.delete();
+            }
+        }
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists()) {
+            dir.mkdirs();
+        }
+        size = file.length();
+        writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file, true), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException ex) {
+                Logger.getLogger(App.class.getName()).log(Level.SEVERE, null, ex);
+            }
+            writer = null;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package edu.touro.mco152.bm;
+
+/**
+ * Watches the bandwidth of consecutive marks and reports steady state once
+ * the coefficient of variation (standard deviation over mean) of the last
+ * window marks drops to a threshold. The window is a fixed ring of doubles,
+ * adding a mark never allocates.
+ */
+public class SteadyStateDetector {
+
+    private final double[] window;
+    private final double maxCov;
+    private int count = 0;
+    private int next = 0;
+    private int steadyMark = -1;
+
+    /**
+     * @param windowMarks marks the variation is measured over, at least 2
+     * @param maxCov largest coefficient of variation counted as steady,
+     *               eg. 0.05 for 5%
+     */
+    public SteadyStateDetector(int windowMarks, double maxCov) {
+        window = new double[Math.max(2, windowMarks)];
+        this.maxCov = maxCov;
+    }
+
+    /**
+     * Add the bandwidth of the next mark.
+     * @param markNum number of the mark
+     * @param bwMbSec its bandwidth
+     * @return true if the window is now steady, or already was
+     */
+    public boolean add(int markNum, double bwMbSec) {
+        if (isSteady()) {
+            return true;
+        }
+        window[next] = bwMbSec;
+        next = (next + 1) % window.length;
+        count = Math.min(count + 1, window.length);
+        if (count == window.length && getCov() <= maxCov) {
+            // the steady window started with its oldest mark
+            steadyMark = markNum - window.length + 1;
+        }
+        return isSteady();
+    }
+
+    /**
+     * @return coefficient of variation of the marks in the window, or NaN
+     * before any were added
+     */
+    public double getCov() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        double sum = 0;
+        for (int i=0; i<count; i++) {
+            sum += window[i];
+        }
+        double mean = sum / count;
+        double sq = 0;
+        for (int i=0; i<count; i++) {
+            sq += (window[i] - mean) * (window[i] - mean);
+        }
+        return mean == 0 ? Double.NaN : Math.sqrt(sq / count) / mean;
+    }
+
+    public boolean isSteady() {
+        return steadyMark >= 0;
+    }
+
+    /**
+     * @return number of the first mark of the steady window, or -1
+     */
+    public int getSteadyMark() {
+        return steadyMark;
+    }
+}
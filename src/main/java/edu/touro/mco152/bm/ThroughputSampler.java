@@ -0,0 +1,144 @@
+package edu.touro.mco152.bm;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Snapshots the bytes completed every few milliseconds while a run is going
+ * so stalls inside a mark show up instead of being averaged away. Each
+ * sample is the throughput since the previous one and the position in the
+ * run it was taken at, as a fractional mark number so it lines up with the
+ * marks on the chart.
+ *
+ * Samples go into preallocated float rings, when a run outlasts the capacity
+ * the oldest samples are overwritten. Sampling runs on a timer thread of its
+ * own, the I/O threads are never touched.
+ */
+public class ThroughputSampler {
+
+    /** samples kept per run */
+    public static final int CAPACITY = 8192;
+
+    /**
+     * Called for every sample from the timer thread.
+     */
+    public interface Listener {
+        void sampled(double position, double mbSec);
+    }
+
+    private final long intervalMs;
+    private final float[] positions = new float[CAPACITY];
+    private final float[] rates = new float[CAPACITY];
+    private final ScheduledExecutorService timer;
+    private ScheduledFuture<?> task = null;
+    private int next = 0;
+    private int count = 0;
+    private long lastBytes;
+    private long lastTime;
+
+    /**
+     * @param intervalMs time between samples
+     */
+    public ThroughputSampler(long intervalMs) {
+        this.intervalMs = intervalMs;
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "throughput-sampler");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Forget the previous run's samples and start sampling.
+     * @param bytesDone total bytes completed so far
+     * @param position where in the run the benchmark is
+     * @param listener told about every sample, may be null
+     */
+    public synchronized void start(LongSupplier bytesDone, DoubleSupplier position,
+            Listener listener) {
+        stop();
+        next = 0;
+        count = 0;
+        lastBytes = bytesDone.getAsLong();
+        lastTime = System.nanoTime();
+        task = timer.scheduleAtFixedRate(() -> sample(bytesDone, position, listener),
+                intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void sample(LongSupplier bytesDone, DoubleSupplier position,
+            Listener listener) {
+        long now = System.nanoTime();
+        long bytes = bytesDone.getAsLong();
+        double mbSec = (double) (bytes - lastBytes) / App.MEGABYTE / ((now - lastTime) / 1e9);
+        double pos = position.getAsDouble();
+        lastBytes = bytes;
+        lastTime = now;
+        positions[next] = (float) pos;
+        rates[next] = (float) mbSec;
+        next = (next + 1) % CAPACITY;
+        count = Math.min(count + 1, CAPACITY);
+        if (listener != null) {
+            listener.sampled(pos, mbSec);
+        }
+    }
+
+    /**
+     * Stop sampling, the samples taken stay available.
+     */
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+    }
+
+    /**
+     * Stop the timer thread for good.
+     */
+    public void shutdown() {
+        stop();
+        timer.shutdownNow();
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    public long getIntervalMs() {
+        return intervalMs;
+    }
+
+    /**
+     * Pack the samples, oldest first, as big endian float pairs of position
+     * and MB/s, 8 bytes a sample.
+     * @return the packed samples
+     */
+    public synchronized byte[] toBytes() {
+        ByteBuffer buf = ByteBuffer.allocate(count * 2 * Float.BYTES);
+        int first = (next - count + CAPACITY) % CAPACITY;
+        for (int i=0; i<count; i++) {
+            int s = (first + i) % CAPACITY;
+            buf.putFloat(positions[s]).putFloat(rates[s]);
+        }
+        return buf.array();
+    }
+
+    /**
+     * Unpack samples made by toBytes.
+     * @param packed the packed samples, may be null
+     * @return position and MB/s of every sample, interleaved
+     */
+    public static float[] fromBytes(byte[] packed) {
+        if (packed == null) {
+            return new float[0];
+        }
+        float[] samples = new float[packed.length / Float.BYTES];
+        ByteBuffer.wrap(packed).asFloatBuffer().get(samples);
+        return samples;
+    }
+}
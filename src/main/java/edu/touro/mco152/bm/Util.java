@@ -40,6 +40,24 @@ public class Util {
         return (path.delete());
     }
     
+    /**
+     * Appends copies of a block to a file until it is at least length bytes
+     * long. Unlike setLength this really allocates the space, the file is
+     * never left sparse.
+     * @param file the file to extend, created if missing
+     * @param length the length to reach
+     * @param block the contents to write, the last copy may be cut short
+     * @throws IOException if the file can not be written
+     */
+    static public void fillFile(File file, long length, byte[] block) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            for (long pos = raf.length(); pos < length; pos += block.length) {
+                raf.seek(pos);
+                raf.write(block, 0, (int) Math.min(block.length, length - pos));
+            }
+        }
+    }
+    
     /**
      * Returns a pseudo-random number between min and max, inclusive.
      * The difference between min and max can be at most
@@ -131,7 +149,6 @@ public class Util {
      * @return Disk info if available.
      */
     public static String getDiskInfo(File dataDir) {
-        System.out.println("os: "+System.getProperty("os.name"));
         Path dataDirPath = Paths.get(dataDir.getAbsolutePath());
         String osName = System.getProperty("os.name");
         if (osName.contains("Linux")) {
@@ -0,0 +1,136 @@
+package edu.touro.mco152.bm.cli;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.touro.mco152.bm.App;
+import edu.touro.mco152.bm.Benchmark;
+import edu.touro.mco152.bm.EventLog;
+import edu.touro.mco152.bm.Util;
+
+/**
+ * Headless entry point. Runs one benchmark with the settings of
+ * jdm.properties, overridden by name=value arguments using the same names,
+ * and streams the results to stdout. Nothing in here touches AWT or Swing.
+ *
+ * <pre>
+ * java edu.touro.mco152.bm.cli.Cli [--format=json|csv] [--name=value ...]
+ * </pre>
+ *
+ * Exits with 0 on success, 1 if the benchmark failed and 2 for bad
+ * arguments. The configuration is not saved.
+ */
+public class Cli {
+    
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_FAILED = 1;
+    public static final int EXIT_USAGE = 2;
+    
+    public static void main(String[] args) {
+        // the rest of the app logs to System.out, keep it out of the results
+        PrintStream out = System.out;
+        System.setOut(System.err);
+        System.exit(run(args, out, System.err));
+    }
+    
+    /**
+     * Run the benchmark for the given arguments.
+     * @param args the command line arguments
+     * @param out where the results go
+     * @param err where log messages go
+     * @return the exit status
+     */
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        System.setProperty("java.awt.headless", "true");
+        
+        App.p = new Properties();
+        App.loadConfig();
+        Properties known = new Properties();
+        App.putConfig(known);
+        known.setProperty("locationDir", "");
+        
+        ResultWriter.Format format = ResultWriter.Format.JSON;
+        for (String arg : args) {
+            String option = arg.startsWith("--") ? arg.substring(2) : arg;
+            if (option.equals("help")) {
+                usage(err, known);
+                return EXIT_OK;
+            }
+            int eq = option.indexOf('=');
+            if (eq < 1) {
+                err.println("expected name=value: " + arg);
+                usage(err, known);
+                return EXIT_USAGE;
+            }
+            String name = option.substring(0, eq);
+            String value = option.substring(eq + 1);
+            if (name.equals("format")) {
+                try {
+                    format = ResultWriter.Format.valueOf(value.toUpperCase());
+                } catch (IllegalArgumentException ex) {
+                    err.println("unknown format: " + value);
+                    return EXIT_USAGE;
+                }
+            } else if (known.containsKey(name)) {
+                App.p.setProperty(name, value);
+            } else {
+                err.println("unknown setting: " + name);
+                usage(err, known);
+                return EXIT_USAGE;
+            }
+        }
+        try {
+            App.applyConfig();
+        } catch (IllegalArgumentException ex) {
+            err.println("invalid setting: " + ex.getMessage());
+            return EXIT_USAGE;
+        }
+        err.print(App.getConfigString());
+        
+        if (App.locationDir.canWrite() == false) {
+            err.println("Selected directory can not be written to... aborting");
+            return EXIT_FAILED;
+        }
+        App.dataDir = new File(App.locationDir.getAbsolutePath()+File.separator+App.DATADIRNAME);
+        if (App.dataDir.exists() == false) { App.dataDir.mkdirs(); }
+        // configure the embedded DB in .jDiskMark
+        System.setProperty("derby.system.home", App.APP_CACHE_DIR);
+        
+        ResultWriter writer = ResultWriter.create(format, out, err);
+        App.startEventLog(batch -> batch.forEach(event -> err.println(
+                event.getSeverity() == EventLog.Severity.INFO ? event.getMessage()
+                        : event.getSeverity()+": "+event.getMessage())));
+        long failuresBefore = App.runStore.getFailures();
+        boolean ok;
+        try {
+            ok = new Benchmark(writer, () -> false).run();
+        } catch (RuntimeException ex) {
+            Logger.getLogger(App.class.getName()).log(Level.SEVERE, null, ex);
+            ok = false;
+        } finally {
+            // the last runs may still be on their way to the database
+            App.runStore.shutdown();
+            long lost = App.runStore.getFailures() - failuresBefore;
+            if (lost > 0) {
+                App.eventLog.log(EventLog.Severity.ERROR,
+                        "could not store "+lost+(lost == 1 ? " run" : " runs"));
+            }
+            App.eventLog.shutdown();
+            if (App.autoRemoveData) {
+                Util.deleteDirectory(App.dataDir);
+            }
+        }
+        // a run that was not stored is lost to later comparisons
+        return ok && App.runStore.getFailures() == failuresBefore ? EXIT_OK : EXIT_FAILED;
+    }
+    
+    static void usage(PrintStream err, Properties known) {
+        err.println("usage: java " + Cli.class.getName()
+                + " [--format=json|csv] [--name=value ...]");
+        err.println("settings: " + String.join(", ", new TreeSet<>(known.stringPropertyNames())));
+    }
+}
@@ -0,0 +1,46 @@
+package edu.touro.mco152.bm.cli;
+
+import java.io.PrintStream;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes every record as a CSV line starting with its type. Marks and runs
+ * have different columns, so a header line is written before the first
+ * record of each type.
+ */
+public class CsvWriter extends ResultWriter {
+    
+    private final Set<String> headersWritten = new HashSet<>();
+    
+    public CsvWriter(PrintStream out, PrintStream err) {
+        super(out, err);
+    }
+    
+    @Override
+    protected void write(String record, Map<String, Object> fields) {
+        if (headersWritten.add(record)) {
+            out.println("record," + String.join(",", fields.keySet()));
+        }
+        StringBuilder sb = new StringBuilder(record);
+        fields.values().forEach(value -> {
+            sb.append(',');
+            String text = format(value);
+            if (text != null) {
+                quote(sb, text);
+            }
+        });
+        out.println(sb);
+        out.flush();
+    }
+    
+    static void quote(StringBuilder sb, String text) {
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0
+                && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            sb.append(text);
+            return;
+        }
+        sb.append('"').append(text.replace("\"", "\"\"")).append('"');
+    }
+}
@@ -0,0 +1,48 @@
+package edu.touro.mco152.bm.cli;
+
+import java.io.PrintStream;
+import java.util.Map;
+
+/**
+ * Writes every record as a single line JSON object with a "record" field
+ * holding its type.
+ */
+public class JsonLinesWriter extends ResultWriter {
+    
+    public JsonLinesWriter(PrintStream out, PrintStream err) {
+        super(out, err);
+    }
+    
+    @Override
+    protected void write(String record, Map<String, Object> fields) {
+        StringBuilder sb = new StringBuilder("{\"record\":\"").append(record).append('"');
+        fields.forEach((name, value) -> {
+            sb.append(",\"").append(name).append("\":");
+            String text = format(value);
+            if (text == null) {
+                sb.append("null");
+            } else if (value instanceof Number || value instanceof Boolean) {
+                sb.append(text);
+            } else {
+                quote(sb, text);
+            }
+        });
+        out.println(sb.append('}'));
+        out.flush();
+    }
+    
+    static void quote(StringBuilder sb, String text) {
+        sb.append('"');
+        for (int i=0; i<text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+}
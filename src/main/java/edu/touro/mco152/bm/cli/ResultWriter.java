@@ -0,0 +1,206 @@
+package edu.touro.mco152.bm.cli;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import edu.touro.mco152.bm.App;
+import edu.touro.mco152.bm.BenchmarkListener;
+import edu.touro.mco152.bm.DiskMark;
+import edu.touro.mco152.bm.Util;
+import edu.touro.mco152.bm.persist.DiskRun;
+
+/**
+ * Listener that writes every mark, parallel file, run and throughput sample
+ * as one record to stdout. Log messages go to stderr, by way of the event
+ * log, so the output can be piped straight into another tool. Subclasses
+ * decide the record format.
+ * Samples come from the sampler's thread, so writing records is synchronized.
+ */
+public abstract class ResultWriter implements BenchmarkListener {
+    
+    public static enum Format { JSON, CSV; }
+    
+    protected final PrintStream out;
+    protected final PrintStream err;
+    private int lastDecile = -1;
+    
+    protected ResultWriter(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+    
+    /**
+     * @param format the record format
+     * @param out where the records go
+     * @param err where log messages go
+     * @return a writer for the format
+     */
+    public static ResultWriter create(Format format, PrintStream out, PrintStream err) {
+        if (format == Format.CSV) {
+            return new CsvWriter(out, err);
+        }
+        return new JsonLinesWriter(out, err);
+    }
+    
+    /**
+     * Write one record.
+     * @param record the record type, "mark", "run" or "sample"
+     * @param fields field names and values in output order
+     */
+    protected abstract void write(String record, Map<String, Object> fields);
+    
+    @Override
+    public void message(String message) {
+        // written to err by the event log's thread, see Cli
+        App.msg(message);
+    }
+    
+    @Override
+    public void progress(int percent, long bytesDone, long etaMs) {
+        // every tenth of the way is plenty for a log
+        if (percent / 10 != lastDecile) {
+            lastDecile = percent / 10;
+            App.msg("progress "+percent+"%, "
+                    + Util.displayString((double) bytesDone / App.MEGABYTE)+" MB"
+                    + (etaMs >= 0 ? ", "+(etaMs + 999) / 1000+" sec left" : ""));
+        }
+    }
+    
+    @Override
+    public synchronized void markComplete(DiskMark mark) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("type", mark.getType());
+        fields.put("markNum", mark.getMarkNum());
+        fields.put("warmup", mark.isWarmup());
+        fields.put("bytes", mark.getBytes());
+        fields.put("elapsedNs", mark.getElapsedNs());
+        fields.put("bwMbSec", mark.getBwMbSec());
+        fields.put("cumMin", mark.getCumMin());
+        fields.put("cumMax", mark.getCumMax());
+        fields.put("cumAvg", mark.getCumAvg());
+        fields.put("lat50", mark.getLat50());
+        fields.put("lat90", mark.getLat90());
+        fields.put("lat99", mark.getLat99());
+        fields.put("lat999", mark.getLat999());
+        fields.put("latMax", mark.getLatMax());
+        write("mark", fields);
+    }
+    
+    @Override
+    public synchronized void fileComplete(DiskMark mark, File file) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("type", mark.getType());
+        fields.put("markNum", mark.getMarkNum());
+        fields.put("file", file.getName());
+        fields.put("warmup", mark.isWarmup());
+        fields.put("bytes", mark.getBytes());
+        fields.put("elapsedNs", mark.getElapsedNs());
+        fields.put("bwMbSec", mark.getBwMbSec());
+        fields.put("lat50", mark.getLat50());
+        fields.put("lat90", mark.getLat90());
+        fields.put("lat99", mark.getLat99());
+        fields.put("lat999", mark.getLat999());
+        fields.put("latMax", mark.getLatMax());
+        write("file", fields);
+    }
+    
+    @Override
+    public synchronized void throughputSampled(DiskRun.IOMode mode, double position,
+            double mbSec) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("ioMode", mode);
+        fields.put("position", position);
+        fields.put("mbSec", mbSec);
+        write("sample", fields);
+    }
+    
+    @Override
+    public synchronized void runComplete(DiskRun run, boolean stored) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        // a run that was not stored has no id
+        fields.put("id", stored ? run.getId() : null);
+        fields.put("ioMode", run.getIoMode());
+        fields.put("readPercent", run.getReadPercent());
+        fields.put("blockOrder", run.getBlockOrder());
+        fields.put("seed", run.getSeed());
+        fields.put("engine", run.getEngine());
+        fields.put("cacheBypassed", run.isCacheBypassed());
+        fields.put("numThreads", run.getNumThreads());
+        fields.put("queueDepth", run.getQueueDepth());
+        fields.put("parallelFiles", run.getParallelFiles());
+        fields.put("preallocation", run.getPreallocation());
+        fields.put("growingMarks", run.getGrowingMarks());
+        fields.put("dataMode", run.getDataMode());
+        fields.put("compressRatio", run.getCompressRatio());
+        fields.put("integrity", run.isIntegrity());
+        fields.put("verifiedBlocks", run.getVerifiedBlocks());
+        fields.put("mismatchBlocks", run.getMismatchBlocks());
+        fields.put("unwrittenBlocks", run.getUnwrittenBlocks());
+        fields.put("staleBlocks", run.getStaleBlocks());
+        fields.put("checksumNs", run.getChecksumNs());
+        fields.put("metaFiles", run.getMetaFiles());
+        fields.put("metaFileSize", run.getMetaFileSize());
+        fields.put("createOpsSec", run.getCreateOpsSec());
+        fields.put("createLat50", run.getCreateLat50());
+        fields.put("createLat99", run.getCreateLat99());
+        fields.put("statOpsSec", run.getStatOpsSec());
+        fields.put("statLat50", run.getStatLat50());
+        fields.put("statLat99", run.getStatLat99());
+        fields.put("readOpsSec", run.getReadOpsSec());
+        fields.put("readLat50", run.getReadLat50());
+        fields.put("readLat99", run.getReadLat99());
+        fields.put("deleteOpsSec", run.getDeleteOpsSec());
+        fields.put("deleteLat50", run.getDeleteLat50());
+        fields.put("deleteLat99", run.getDeleteLat99());
+        fields.put("syncPolicy", run.getSyncPolicy());
+        fields.put("syncEvery", run.getSyncEvery());
+        fields.put("syncCount", run.getSyncCount());
+        fields.put("syncLat50", run.getSyncLat50());
+        fields.put("syncLat90", run.getSyncLat90());
+        fields.put("syncLat99", run.getSyncLat99());
+        fields.put("syncLatMax", run.getSyncLatMax());
+        fields.put("numMarks", run.getNumMarks());
+        fields.put("totalMarks", run.getTotalMarks());
+        fields.put("warmupMarks", run.getWarmupMarks());
+        fields.put("steadyStateMark", run.getSteadyStateMark());
+        fields.put("markTimeMs", run.getMarkTimeMs());
+        fields.put("totalBytes", run.getTotalBytes());
+        fields.put("elapsedNs", run.getElapsedNs());
+        fields.put("numBlocks", run.getNumBlocks());
+        fields.put("blockSize", run.getBlockSize());
+        fields.put("txSize", run.getTxSize());
+        fields.put("startTime", run.getStartTime());
+        fields.put("endTime", run.getEndTime());
+        fields.put("runMin", run.getRunMin());
+        fields.put("runMax", run.getRunMax());
+        fields.put("runAvg", run.getRunAvg());
+        fields.put("ciHalfWidth", run.getCiHalfWidth());
+        fields.put("ciPercent", run.getCiPercent());
+        fields.put("ciTargetPercent", run.getCiTargetPercent());
+        fields.put("lat50", run.getLat50());
+        fields.put("lat90", run.getLat90());
+        fields.put("lat99", run.getLat99());
+        fields.put("lat999", run.getLat999());
+        fields.put("latMax", run.getLatMax());
+        fields.put("diskInfo", run.getDiskInfo());
+        write("run", fields);
+    }
+    
+    /**
+     * @return the value as text, dates in ISO-8601 and missing or non finite
+     * values as null
+     */
+    static String format(Object value) {
+        if (value == null) {
+            return null;
+        } else if (value instanceof Double && !Double.isFinite((Double) value)) {
+            return null;
+        } else if (value instanceof Date) {
+            return ((Date) value).toInstant().toString();
+        }
+        return String.valueOf(value);
+    }
+}
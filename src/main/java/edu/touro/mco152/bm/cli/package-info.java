@@ -0,0 +1,7 @@
+/**
+ * The cli package runs the benchmark without a GUI, for servers without a
+ * display and scheduled jobs. Results are streamed to stdout in a machine
+ * readable format while log messages go to stderr.
+ */
+
+package edu.touro.mco152.bm.cli;
@@ -0,0 +1,276 @@
+package edu.touro.mco152.bm.io;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import edu.touro.mco152.bm.LatencyHistogram;
+import edu.touro.mco152.bm.persist.DiskRun;
+
+/**
+ * Engine that issues reads and writes through an AsynchronousFileChannel so a
+ * single thread can keep many requests outstanding. read and write return as
+ * soon as the request is queued and only block when queueDepth requests are
+ * already in flight; close waits for the rest to complete.
+ *
+ * Every request in flight has a preallocated Request that is recycled through
+ * a bounded queue, which doubles as the limit on outstanding requests. Time
+ * spent inside the completion handler is summed so the cost of the callback
+ * machinery can be compared with the blocking engines. Block latency is
+ * measured from submission to completion, so the engine records it itself.
+ */
+public class AsyncFileChannelEngine implements IOEngine {
+
+    private final int queueDepth;
+    private final BlockingQueue<Request> free;
+    private final Request[] drained;
+    private final Handler handler = new Handler();
+    private final LongAdder handlerTimeNs = new LongAdder();
+    private AsynchronousFileChannel channel = null;
+    private volatile IOException failure = null;
+    private LatencyHistogram readLatency = null;
+    private LatencyHistogram writeLatency = null;
+    private CompletionListener completionListener = null;
+
+    /**
+     * @param queueDepth maximum requests outstanding at once
+     */
+    public AsyncFileChannelEngine(int queueDepth) {
+        this.queueDepth = Math.max(1, queueDepth);
+        free = new ArrayBlockingQueue<>(this.queueDepth);
+        drained = new Request[this.queueDepth];
+        for (int i=0; i<this.queueDepth; i++) {
+            free.add(new Request());
+        }
+    }
+
+    @Override
+    public ByteBuffer allocateBuffer(int size) {
+        return ByteBuffer.allocateDirect(size);
+    }
+
+    @Override
+    public void open(File file, boolean write, DiskRun.SyncPolicy sync) throws IOException {
+        failure = null;
+        handlerTimeNs.reset();
+        Set<OpenOption> options = new HashSet<>();
+        if (write) {
+            options.add(StandardOpenOption.CREATE);
+            options.add(StandardOpenOption.READ);
+            options.add(StandardOpenOption.WRITE);
+            if (sync == DiskRun.SyncPolicy.O_DSYNC) {
+                options.add(StandardOpenOption.DSYNC);
+            } else if (sync == DiskRun.SyncPolicy.O_SYNC) {
+                options.add(StandardOpenOption.SYNC);
+            }
+        } else {
+            options.add(StandardOpenOption.READ);
+        }
+        channel = AsynchronousFileChannel.open(file.toPath(), options, null);
+    }
+
+    @Override
+    public void write(long position, ByteBuffer buffer) throws IOException {
+        Request req = nextRequest(position, buffer);
+        req.write = true;
+        channel.write(req.view, position, req, handler);
+    }
+
+    @Override
+    public void read(long position, ByteBuffer buffer) throws IOException {
+        Request req = nextRequest(position, buffer);
+        req.write = false;
+        channel.read(req.view, position, req, handler);
+    }
+
+    /**
+     * Wait for a free request and point it at the block.
+     */
+    private Request nextRequest(long position, ByteBuffer buffer) throws IOException {
+        checkFailure();
+        Request req;
+        try {
+            req = free.take();
+        } catch (InterruptedException ex) {
+            throw new InterruptedIOException("interrupted waiting for a free request");
+        }
+        // requests share the caller's memory through their own view so
+        // each can track its own position, the view is made once per buffer
+        req.source = buffer;
+        req.view = req.viewOf(buffer);
+        req.view.clear();
+        req.blockPosition = position;
+        req.position = position;
+        req.startTime = System.nanoTime();
+        return req;
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Block until every outstanding request has completed.
+     * @throws IOException if any request failed
+     */
+    public void drain() throws IOException {
+        // every request is back once all of them can be taken from the queue
+        int held = 0;
+        try {
+            while (held < queueDepth) {
+                drained[held] = free.take();
+                held++;
+            }
+        } catch (InterruptedException ex) {
+            throw new InterruptedIOException("interrupted draining requests");
+        } finally {
+            for (int i=0; i<held; i++) {
+                free.add(drained[i]);
+            }
+        }
+        checkFailure();
+    }
+
+    @Override
+    public void sync(boolean metadata) throws IOException {
+        // only what has completed can be flushed
+        drain();
+        channel.force(metadata);
+    }
+
+    @Override
+    public long getHandlerTimeNs() {
+        return handlerTimeNs.sum();
+    }
+
+    @Override
+    public boolean recordsLatency() {
+        return true;
+    }
+
+    @Override
+    public void setLatencyHistograms(LatencyHistogram readLatency,
+            LatencyHistogram writeLatency) {
+        this.readLatency = readLatency;
+        this.writeLatency = writeLatency;
+    }
+
+    @Override
+    public boolean reportsCompletion() {
+        return true;
+    }
+
+    @Override
+    public void setCompletionListener(CompletionListener listener) {
+        completionListener = listener;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            try {
+                drain();
+            } finally {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    /**
+     * One outstanding read or write.
+     */
+    static class Request {
+        /** buffers a request remembers views of, enough for a write pool */
+        static final int VIEW_CACHE = 32;
+
+        final ByteBuffer[] sources = new ByteBuffer[VIEW_CACHE];
+        final ByteBuffer[] views = new ByteBuffer[VIEW_CACHE];
+        int nextView = 0;
+        ByteBuffer source;
+        ByteBuffer view;
+        long blockPosition;
+        long position;
+        long startTime;
+        boolean write;
+
+        ByteBuffer viewOf(ByteBuffer buffer) {
+            for (int i=0; i<VIEW_CACHE; i++) {
+                if (sources[i] == buffer) {
+                    return views[i];
+                }
+            }
+            int i = nextView;
+            nextView = (nextView + 1) % VIEW_CACHE;
+            sources[i] = buffer;
+            views[i] = buffer.duplicate();
+            return views[i];
+        }
+    }
+
+    /**
+     * Completion handler shared by every request. Reissues the remainder of
+     * short transfers and returns finished requests to the free queue.
+     */
+    class Handler implements CompletionHandler<Integer, Request> {
+
+        @Override
+        public void completed(Integer result, Request req) {
+            long startTime = System.nanoTime();
+            if (result < 0) {
+                failure = new EOFException("end of file at position " + req.position);
+                finish(req, false);
+            } else if (req.view.hasRemaining()) {
+                req.position += result;
+                if (req.write) {
+                    channel.write(req.view, req.position, req, this);
+                } else {
+                    channel.read(req.view, req.position, req, this);
+                }
+            } else {
+                LatencyHistogram latency = req.write ? writeLatency : readLatency;
+                if (latency != null) {
+                    latency.record(startTime - req.startTime);
+                }
+                finish(req, true);
+            }
+            handlerTimeNs.add(System.nanoTime() - startTime);
+        }
+
+        @Override
+        public void failed(Throwable exc, Request req) {
+            failure = exc instanceof IOException ? (IOException) exc : new IOException(exc);
+            finish(req, false);
+        }
+
+        /**
+         * Tell the listener the buffer is done with, then recycle the request,
+         * so drain only returns once every listener call has been made.
+         */
+        private void finish(Request req, boolean ok) {
+            CompletionListener listener = completionListener;
+            if (listener != null) {
+                listener.completed(req.source, req.blockPosition, req.write, ok);
+            }
+            free.add(req);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package edu.touro.mco152.bm.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sun.nio.file.ExtendedOpenOption;
+
+import edu.touro.mco152.bm.persist.DiskRun;
+
+/**
+ * FileChannel engine that opens the test file with O_DIRECT so reads and
+ * writes bypass the OS page cache. Direct I/O needs buffers, offsets and
+ * lengths aligned to the file system block size, so buffers are allocated
+ * on that boundary and misaligned blocks are rejected rather than silently
+ * falling back to cached I/O.
+ */
+public class DirectIoEngine extends FileChannelEngine {
+    
+    static final int DEFAULT_ALIGNMENT = 4096;
+    
+    private final int alignment;
+    
+    /**
+     * @param dir the directory the test files are created in, used to look
+     *            up the file system block size
+     */
+    public DirectIoEngine(File dir) {
+        int blockSize = DEFAULT_ALIGNMENT;
+        try {
+            blockSize = (int) Files.getFileStore(dir.toPath()).getBlockSize();
+        } catch (IOException | UnsupportedOperationException ex) {
+            // keep the default, most devices use 512 or 4096 byte sectors
+        }
+        alignment = blockSize;
+    }
+    
+    /**
+     * @return the alignment required of buffers, offsets and lengths
+     */
+    @Override
+    public int getAlignment() {
+        return alignment;
+    }
+
+    @Override
+    public ByteBuffer allocateBuffer(int size) {
+        // the aligned slice loses up to an alignment at the front and ends on
+        // a boundary, so a size that is not a multiple still fits
+        int rounded = (size + alignment - 1) / alignment * alignment;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(rounded + alignment).alignedSlice(alignment);
+        buffer.limit(size);
+        return buffer.slice();
+    }
+
+    @Override
+    public void open(File file, boolean write, DiskRun.SyncPolicy sync) throws IOException {
+        List<OpenOption> options = new ArrayList<>();
+        options.add(ExtendedOpenOption.DIRECT);
+        if (write) {
+            options.add(StandardOpenOption.CREATE);
+            options.add(StandardOpenOption.READ);
+            options.add(StandardOpenOption.WRITE);
+            if (sync == DiskRun.SyncPolicy.O_DSYNC) {
+                options.add(StandardOpenOption.DSYNC);
+            } else if (sync == DiskRun.SyncPolicy.O_SYNC) {
+                options.add(StandardOpenOption.SYNC);
+            }
+        } else {
+            options.add(StandardOpenOption.READ);
+        }
+        channel = FileChannel.open(file.toPath(), options.toArray(new OpenOption[0]));
+    }
+
+    @Override
+    public void write(long position, ByteBuffer buffer) throws IOException {
+        checkAlignment(position, buffer);
+        super.write(position, buffer);
+    }
+
+    @Override
+    public void read(long position, ByteBuffer buffer) throws IOException {
+        checkAlignment(position, buffer);
+        super.read(position, buffer);
+    }
+    
+    private void checkAlignment(long position, ByteBuffer buffer) throws IOException {
+        if (position % alignment != 0 || buffer.capacity() % alignment != 0) {
+            throw new IOException("direct I/O needs blocks aligned to "
+                    + alignment + " bytes, got offset " + position
+                    + " length " + buffer.capacity());
+        }
+    }
+
+    @Override
+    public boolean bypassesCache() {
+        return true;
+    }
+}
@@ -0,0 +1,79 @@
+package edu.touro.mco152.bm.io;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.touro.mco152.bm.persist.DiskRun;
+
+/**
+ * Engine using positional FileChannel reads and writes on direct ByteBuffers.
+ * The buffers live in native memory so the JVM can hand them to the OS
+ * without the heap copy the RandomAccessFile engine pays for.
+ */
+public class FileChannelEngine implements IOEngine {
+    
+    protected FileChannel channel = null;
+
+    @Override
+    public ByteBuffer allocateBuffer(int size) {
+        return ByteBuffer.allocateDirect(size);
+    }
+
+    @Override
+    public void open(File file, boolean write, DiskRun.SyncPolicy sync) throws IOException {
+        List<OpenOption> options = new ArrayList<>();
+        if (write) {
+            options.add(StandardOpenOption.CREATE);
+            options.add(StandardOpenOption.READ);
+            options.add(StandardOpenOption.WRITE);
+            if (sync == DiskRun.SyncPolicy.O_DSYNC) {
+                options.add(StandardOpenOption.DSYNC);
+            } else if (sync == DiskRun.SyncPolicy.O_SYNC) {
+                options.add(StandardOpenOption.SYNC);
+            }
+        } else {
+            options.add(StandardOpenOption.READ);
+        }
+        channel = FileChannel.open(file.toPath(), options.toArray(new OpenOption[0]));
+    }
+
+    @Override
+    public void write(long position, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    @Override
+    public void read(long position, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                throw new EOFException("end of file at position " + position);
+            }
+            position += n;
+        }
+    }
+
+    @Override
+    public void sync(boolean metadata) throws IOException {
+        channel.force(metadata);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package edu.touro.mco152.bm.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import edu.touro.mco152.bm.App;
+import edu.touro.mco152.bm.LatencyHistogram;
+import edu.touro.mco152.bm.persist.DiskRun;
+
+/**
+ * An IOEngine performs the per block reads and writes of a benchmark mark
+ * against a single test file. An engine is opened once per mark, used for
+ * every block in that mark and then closed, after which it can be opened
+ * again for the next mark.
+ * 
+ * Engines with a queue depth above one may return from read and write
+ * before the transfer is done, the buffer must not be changed until the
+ * engine is closed.
+ * 
+ * Buffers handed to an engine must come from its own allocateBuffer method
+ * so that each engine can use the memory type it performs best with. The
+ * whole buffer, from zero to its capacity, is transferred on every call.
+ */
+public interface IOEngine extends Closeable {
+    
+    /**
+     * Allocate a block buffer suited to this engine.
+     * @param size the block size in bytes
+     * @return a buffer of the given capacity
+     */
+    ByteBuffer allocateBuffer(int size);
+    
+    /**
+     * Open the test file for the coming mark.
+     * @param file the test data file
+     * @param write true to open for reading and writing, false for
+     *              reading only
+     * @param sync O_DSYNC or O_SYNC to open the file so every write reaches
+     *             the device before it completes, the other policies are
+     *             carried out by calling sync
+     * @throws IOException if the file can not be opened
+     */
+    void open(File file, boolean write, DiskRun.SyncPolicy sync) throws IOException;
+    
+    /**
+     * Write the whole buffer at the given file position.
+     * @param position byte offset in the file
+     * @param buffer a buffer from allocateBuffer
+     * @throws IOException 
+     */
+    void write(long position, ByteBuffer buffer) throws IOException;
+    
+    /**
+     * Fill the whole buffer from the given file position.
+     * @param position byte offset in the file
+     * @param buffer a buffer from allocateBuffer
+     * @throws IOException if the file ends before the buffer is full
+     */
+    void read(long position, ByteBuffer buffer) throws IOException;
+    
+    /**
+     * Flush everything written so far to the device, like fdatasync, or
+     * with metadata like fsync. Engines with requests in flight wait for
+     * them first.
+     * @param metadata also flush the file's metadata, eg. its length
+     * @throws IOException if the flush fails
+     */
+    void sync(boolean metadata) throws IOException;
+    
+    /**
+     * Time spent flushing written data to the device, for engines that do
+     * that as a separate step from the writes themselves.
+     * @return nanoseconds spent forcing writes since the last open
+     */
+    default long getForceTimeNs() {
+        return 0;
+    }
+    
+    /**
+     * Time spent in completion callbacks, for engines that finish requests
+     * asynchronously.
+     * @return nanoseconds spent in completion handlers since the last open
+     */
+    default long getHandlerTimeNs() {
+        return 0;
+    }
+    
+    /**
+     * @return the number of requests the engine keeps in flight by itself,
+     *         1 for engines whose read and write calls block
+     */
+    default int getQueueDepth() {
+        return 1;
+    }
+    
+    /**
+     * @return true if the engine records block latencies itself, which is
+     *         needed when read and write return before the transfer is done
+     */
+    default boolean recordsLatency() {
+        return false;
+    }
+    
+    /**
+     * Set the histograms an engine that records its own latencies uses.
+     * @param readLatency the histogram for reads in the current mark
+     * @param writeLatency the histogram for writes in the current mark
+     */
+    default void setLatencyHistograms(LatencyHistogram readLatency,
+            LatencyHistogram writeLatency) {
+    }
+    
+    /**
+     * @return true if the engine tells a CompletionListener when each read
+     *         and write is done, which is needed to know when a buffer can
+     *         be reused if read and write return before the transfer is done
+     */
+    default boolean reportsCompletion() {
+        return false;
+    }
+    
+    /**
+     * Set the listener an engine that reports completion tells about every
+     * read and write it finishes.
+     * @param listener the listener, or null for none
+     */
+    default void setCompletionListener(CompletionListener listener) {
+    }
+    
+    /**
+     * @return true if reads and writes skip the OS page cache, so read
+     *         results measure the device and not memory
+     */
+    default boolean bypassesCache() {
+        return false;
+    }
+    
+    /**
+     * @return the multiple of bytes block sizes and offsets have to be, 1
+     *         for any
+     */
+    default int getAlignment() {
+        return 1;
+    }
+    
+    /**
+     * Told when a read or write has finished with its buffer.
+     */
+    interface CompletionListener {
+        /**
+         * @param buffer the buffer passed to read or write
+         * @param position file position of the block
+         * @param write true for a write, false for a read
+         * @param ok false if the transfer failed
+         */
+        void completed(ByteBuffer buffer, long position, boolean write, boolean ok);
+    }
+    
+    /**
+     * Create a new engine of the given type.
+     * @param type the engine type selected for the run
+     * @return a new unopened engine
+     */
+    static IOEngine create(DiskRun.EngineType type) {
+        switch (type) {
+            case FILE_CHANNEL:
+                return new FileChannelEngine();
+            case DIRECT_IO:
+                return new DirectIoEngine(App.dataDir);
+            case ASYNC_FILE_CHANNEL:
+                return new AsyncFileChannelEngine(App.queueDepth);
+            case MEMORY_MAPPED:
+                return new MappedEngine((long) App.mmapWindowMb * App.MEGABYTE);
+            case RANDOM_ACCESS_FILE:
+            default:
+                return new RandomAccessFileEngine();
+        }
+    }
+}
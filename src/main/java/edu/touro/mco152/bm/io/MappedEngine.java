@@ -0,0 +1,188 @@
+package edu.touro.mco152.bm.io;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.touro.mco152.bm.persist.DiskRun;
+
+/**
+ * Engine that reads and writes blocks through a MappedByteBuffer. The test
+ * file is mapped one window at a time and a new window is mapped whenever a
+ * block falls outside the current one, so files larger than the address
+ * space we want to commit can still be used.
+ * 
+ * Writes only reach the page cache until the window is forced, so every
+ * window is forced before it is dropped and again on close. The time spent
+ * in force() is kept so it can be reported separately from the copies.
+ * Mapping a window grows the file past the last block, so the file is cut
+ * back on close. Engines of several I/O slots writing the same file share
+ * the highest block written, and the last one to close does the cutting.
+ */
+public class MappedEngine implements IOEngine {
+    
+    private final long windowSize;
+    private FileChannel channel = null;
+    private MappedByteBuffer window = null;
+    private long windowStart = 0;
+    private long windowEnd = 0;
+    private boolean write = false;
+    private boolean writeSync = false;
+    private long forceTimeNs = 0;
+    private long highWater = 0;
+    private Path path = null;
+    
+    /** files open for writing, shared by the engines writing them */
+    private static final Map<Path, SharedFile> SHARED = new HashMap<>();
+    
+    static class SharedFile {
+        long initialSize;
+        long highWater = 0;
+        int writers = 0;
+    }
+    
+    /**
+     * @param windowSize bytes to map at a time
+     */
+    public MappedEngine(long windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    @Override
+    public ByteBuffer allocateBuffer(int size) {
+        return ByteBuffer.allocateDirect(size);
+    }
+
+    @Override
+    public void open(File file, boolean write, DiskRun.SyncPolicy sync) throws IOException {
+        this.write = write;
+        // a mapping has no open flags, both are done by forcing every write
+        this.writeSync = sync == DiskRun.SyncPolicy.O_DSYNC || sync == DiskRun.SyncPolicy.O_SYNC;
+        forceTimeNs = 0;
+        if (write) {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            path = file.toPath().toAbsolutePath();
+            synchronized (SHARED) {
+                SharedFile shared = SHARED.get(path);
+                if (shared == null) {
+                    shared = new SharedFile();
+                    shared.initialSize = channel.size();
+                    SHARED.put(path, shared);
+                }
+                shared.writers++;
+            }
+            highWater = 0;
+        } else {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        }
+    }
+
+    @Override
+    public void write(long position, ByteBuffer buffer) throws IOException {
+        int offset = mapWindow(position, buffer.capacity());
+        buffer.clear();
+        window.position(offset);
+        window.put(buffer);
+        highWater = Math.max(highWater, position + buffer.capacity());
+        if (writeSync) {
+            force();
+        }
+    }
+
+    @Override
+    public void read(long position, ByteBuffer buffer) throws IOException {
+        int offset = mapWindow(position, buffer.capacity());
+        window.limit(offset + buffer.capacity());
+        window.position(offset);
+        buffer.clear();
+        buffer.put(window);
+        window.clear();
+    }
+    
+    /**
+     * Make sure the block at position is inside the mapped window.
+     * @return the block offset within the window
+     */
+    private int mapWindow(long position, int length) throws IOException {
+        if (window != null && position >= windowStart && position + length <= windowEnd) {
+            return (int) (position - windowStart);
+        }
+        if (window != null && write) {
+            force();
+        }
+        long start = position - position % windowSize;
+        long size = Math.max(windowSize, position + length - start);
+        if (write) {
+            window = channel.map(FileChannel.MapMode.READ_WRITE, start, size);
+        } else {
+            long fileSize = channel.size();
+            if (position + length > fileSize) {
+                throw new EOFException("end of file at position " + position);
+            }
+            size = Math.min(size, fileSize - start);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+        }
+        windowStart = start;
+        windowEnd = start + size;
+        return (int) (position - windowStart);
+    }
+    
+    @Override
+    public void sync(boolean metadata) throws IOException {
+        // msync flushes the pages, the file length was set when mapping
+        if (window != null) {
+            force();
+        }
+    }
+    
+    private void force() {
+        long startTime = System.nanoTime();
+        window.force();
+        forceTimeNs += System.nanoTime() - startTime;
+    }
+    
+    @Override
+    public long getForceTimeNs() {
+        return forceTimeNs;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (window != null && write) {
+            force();
+        }
+        // the mapping itself is released when the buffer is collected
+        window = null;
+        if (channel != null && write) {
+            // mapping a whole window grows the file past the last block written
+            long length = -1;
+            synchronized (SHARED) {
+                SharedFile shared = SHARED.get(path);
+                shared.highWater = Math.max(shared.highWater, highWater);
+                if (--shared.writers == 0) {
+                    SHARED.remove(path);
+                    length = Math.max(shared.initialSize, shared.highWater);
+                }
+            }
+            if (length >= 0) {
+                try {
+                    channel.truncate(length);
+                } catch (IOException ex) {
+                    // some platforms refuse to truncate a file that is still mapped
+                }
+            }
+        }
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
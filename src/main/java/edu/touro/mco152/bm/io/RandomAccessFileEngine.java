@@ -0,0 +1,57 @@
+package edu.touro.mco152.bm.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+import edu.touro.mco152.bm.persist.DiskRun;
+
+/**
+ * The original jDiskMark engine. Seeks a RandomAccessFile and transfers a heap
+ * byte array, which costs an extra copy to native memory on every block.
+ */
+public class RandomAccessFileEngine implements IOEngine {
+    
+    private RandomAccessFile rAccFile = null;
+
+    @Override
+    public ByteBuffer allocateBuffer(int size) {
+        return ByteBuffer.allocate(size);
+    }
+
+    @Override
+    public void open(File file, boolean write, DiskRun.SyncPolicy sync) throws IOException {
+        String mode = "r";
+        if (write) {
+            mode = sync == DiskRun.SyncPolicy.O_DSYNC ? "rwd"
+                    : sync == DiskRun.SyncPolicy.O_SYNC ? "rws" : "rw";
+        }
+        rAccFile = new RandomAccessFile(file, mode);
+    }
+
+    @Override
+    public void write(long position, ByteBuffer buffer) throws IOException {
+        rAccFile.seek(position);
+        rAccFile.write(buffer.array(), buffer.arrayOffset(), buffer.capacity());
+    }
+
+    @Override
+    public void read(long position, ByteBuffer buffer) throws IOException {
+        rAccFile.seek(position);
+        rAccFile.readFully(buffer.array(), buffer.arrayOffset(), buffer.capacity());
+    }
+
+    @Override
+    public void sync(boolean metadata) throws IOException {
+        rAccFile.getChannel().force(metadata);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (rAccFile != null) {
+            rAccFile.close();
+            rAccFile = null;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+/**
+ * The io package contains the I/O engines used by the disk worker to move
+ * blocks between memory and the test data files. Each engine wraps a
+ * different Java file API so their relative overhead can be compared.
+ */
+
+package edu.touro.mco152.bm.io;
@@ -0,0 +1,51 @@
+package edu.touro.mco152.bm.pattern;
+
+import edu.touro.mco152.bm.App;
+import edu.touro.mco152.bm.persist.DiskRun;
+
+/**
+ * An AccessPattern computes the sequence of block numbers a mark reads or
+ * writes. The whole sequence is generated up front so that choosing the
+ * next block costs nothing on the I/O path and a pattern with a random
+ * element visits exactly the same blocks when given the same seed.
+ */
+public interface AccessPattern {
+    
+    /**
+     * Compute the blocks of a mark in the order they are visited.
+     * @param numBlocks blocks in the file, and the number of entries returned
+     * @param seed seed for patterns with a random element, ignored by others
+     * @return block numbers between 0 and numBlocks-1
+     */
+    int[] generate(int numBlocks, long seed);
+    
+    /**
+     * @return true if the pattern uses its seed
+     */
+    default boolean isSeeded() {
+        return false;
+    }
+    
+    /**
+     * Create the pattern for a block sequence using the current App settings.
+     * @param sequence the block order of the run
+     * @return a new pattern
+     */
+    static AccessPattern create(DiskRun.BlockSequence sequence) {
+        switch (sequence) {
+            case RANDOM:
+                return new UniformRandomPattern();
+            case PERMUTATION:
+                return new PermutationPattern();
+            case ZIPFIAN:
+                return new ZipfianPattern(App.zipfTheta);
+            case STRIDED:
+                return new StridedPattern(App.blockStride);
+            case REVERSE:
+                return new ReversePattern();
+            case SEQUENTIAL:
+            default:
+                return new SequentialPattern();
+        }
+    }
+}
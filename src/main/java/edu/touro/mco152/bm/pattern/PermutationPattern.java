@@ -0,0 +1,28 @@
+package edu.touro.mco152.bm.pattern;
+
+import java.util.SplittableRandom;
+
+/**
+ * Visits every block exactly once in a random order, a Fisher-Yates shuffle
+ * of the sequential pattern.
+ */
+public class PermutationPattern implements AccessPattern {
+
+    @Override
+    public int[] generate(int numBlocks, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] blocks = new SequentialPattern().generate(numBlocks, seed);
+        for (int b=numBlocks-1; b>0; b--) {
+            int swap = random.nextInt(b + 1);
+            int tmp = blocks[b];
+            blocks[b] = blocks[swap];
+            blocks[swap] = tmp;
+        }
+        return blocks;
+    }
+
+    @Override
+    public boolean isSeeded() {
+        return true;
+    }
+}
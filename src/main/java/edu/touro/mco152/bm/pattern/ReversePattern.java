@@ -0,0 +1,17 @@
+package edu.touro.mco152.bm.pattern;
+
+/**
+ * Visits every block once from the end of the file back to the start, which
+ * defeats read ahead that only looks forward.
+ */
+public class ReversePattern implements AccessPattern {
+
+    @Override
+    public int[] generate(int numBlocks, long seed) {
+        int[] blocks = new int[numBlocks];
+        for (int b=0; b<numBlocks; b++) {
+            blocks[b] = numBlocks - 1 - b;
+        }
+        return blocks;
+    }
+}
@@ -0,0 +1,16 @@
+package edu.touro.mco152.bm.pattern;
+
+/**
+ * Visits every block once from the start of the file to the end.
+ */
+public class SequentialPattern implements AccessPattern {
+
+    @Override
+    public int[] generate(int numBlocks, long seed) {
+        int[] blocks = new int[numBlocks];
+        for (int b=0; b<numBlocks; b++) {
+            blocks[b] = b;
+        }
+        return blocks;
+    }
+}
@@ -0,0 +1,30 @@
+package edu.touro.mco152.bm.pattern;
+
+/**
+ * Visits every stride-th block, then starts over one block further on until
+ * every block has been visited once, eg. 0, 4, 8, 1, 5, 9, 2, ... for a
+ * stride of 4.
+ */
+public class StridedPattern implements AccessPattern {
+
+    private final int stride;
+
+    /**
+     * @param stride distance in blocks between consecutive accesses
+     */
+    public StridedPattern(int stride) {
+        this.stride = Math.max(1, stride);
+    }
+
+    @Override
+    public int[] generate(int numBlocks, long seed) {
+        int[] blocks = new int[numBlocks];
+        int i = 0;
+        for (int start=0; start<stride && start<numBlocks; start++) {
+            for (int b=start; b<numBlocks; b+=stride) {
+                blocks[i++] = b;
+            }
+        }
+        return blocks;
+    }
+}
@@ -0,0 +1,25 @@
+package edu.touro.mco152.bm.pattern;
+
+import java.util.SplittableRandom;
+
+/**
+ * Picks every block independently and uniformly at random, so some blocks
+ * may be visited more than once and others not at all.
+ */
+public class UniformRandomPattern implements AccessPattern {
+
+    @Override
+    public int[] generate(int numBlocks, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] blocks = new int[numBlocks];
+        for (int b=0; b<numBlocks; b++) {
+            blocks[b] = random.nextInt(numBlocks);
+        }
+        return blocks;
+    }
+
+    @Override
+    public boolean isSeeded() {
+        return true;
+    }
+}
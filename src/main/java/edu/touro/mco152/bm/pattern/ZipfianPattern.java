@@ -0,0 +1,49 @@
+package edu.touro.mco152.bm.pattern;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Picks blocks at random with a Zipfian skew: the block of rank k is chosen
+ * with a probability proportional to 1/k^theta, so a few hot blocks take
+ * most of the accesses. The hot blocks are spread over the file by a
+ * seeded shuffle of the ranks rather than bunched at its start.
+ */
+public class ZipfianPattern implements AccessPattern {
+
+    private final double theta;
+
+    /**
+     * @param theta skew, 0 is uniform and 0.99 is the usual YCSB hotspot
+     */
+    public ZipfianPattern(double theta) {
+        this.theta = Math.max(0, theta);
+    }
+
+    @Override
+    public int[] generate(int numBlocks, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        // cumulative probability of ranks 0..r
+        double[] cdf = new double[numBlocks];
+        double sum = 0;
+        for (int r=0; r<numBlocks; r++) {
+            sum += 1 / Math.pow(r + 1, theta);
+            cdf[r] = sum;
+        }
+        int[] rankToBlock = new PermutationPattern().generate(numBlocks, random.nextLong());
+        int[] blocks = new int[numBlocks];
+        for (int b=0; b<numBlocks; b++) {
+            int rank = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+            if (rank < 0) {
+                rank = -rank - 1;
+            }
+            blocks[b] = rankToBlock[Math.min(rank, numBlocks - 1)];
+        }
+        return blocks;
+    }
+
+    @Override
+    public boolean isSeeded() {
+        return true;
+    }
+}
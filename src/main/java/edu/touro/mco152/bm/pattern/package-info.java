@@ -0,0 +1,8 @@
+/**
+ * The pattern package contains the access patterns that decide the order
+ * the blocks of a mark are visited in. Every pattern is computed into a
+ * primitive array before the mark starts so the I/O loop only has to index
+ * into it.
+ */
+
+package edu.touro.mco152.bm.pattern;
@@ -5,8 +5,11 @@ import java.io.Serializable;
 import java.text.DateFormat;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.EntityManager;
@@ -18,6 +21,8 @@ import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
+import javax.persistence.Transient;
+import javax.persistence.TypedQuery;
 
 /**
  *
@@ -32,10 +37,15 @@ public class DiskRun implements Serializable {
 
 	private static final long serialVersionUID = 1L;
 	static final DecimalFormat DF = new DecimalFormat("###.##");
+	static final DecimalFormat LAT_DF = new DecimalFormat("###.###");
     static final DateFormat DATE_FORMAT = new SimpleDateFormat("EEE, MMM d HH:mm:ss");
     
-    static public enum IOMode { READ, WRITE, READ_WRITE; }
-    static public enum BlockSequence {SEQUENTIAL, RANDOM; }
+    static public enum IOMode { READ, WRITE, READ_WRITE, METADATA; }
+    static public enum BlockSequence {SEQUENTIAL, RANDOM, PERMUTATION, ZIPFIAN, STRIDED, REVERSE; }
+    static public enum PreallocMode { NONE, SET_LENGTH, ZERO_FILL; }
+    static public enum DataMode { REPEATING, ZEROS, RANDOM, COMPRESSIBLE; }
+    static public enum SyncPolicy { NONE, O_DSYNC, O_SYNC, FORCE_DATA, FORCE_ALL, END_OF_MARK; }
+    static public enum EngineType { RANDOM_ACCESS_FILE, FILE_CHANNEL, MEMORY_MAPPED, DIRECT_IO, ASYNC_FILE_CHANNEL; }
 
     @Column
     @Id
@@ -51,6 +61,133 @@ public class DiskRun implements Serializable {
     @Column
 	private
     BlockSequence blockOrder;
+    @Column
+	private
+    EngineType engine = EngineType.RANDOM_ACCESS_FILE;
+    @Column
+	private
+    boolean cacheBypassed = false;
+    @Column
+	private
+    int numThreads = 1;
+    @Column
+	private
+    int queueDepth = 1;
+    // test files run at the same time
+    @Column
+	private
+    int parallelFiles = 1;
+    // how write marks found their file: preallocated or grown block by block
+    @Column
+	private
+    PreallocMode preallocation = PreallocMode.NONE;
+    @Column
+	private
+    int growingMarks = 0;
+    // what was written, null for a READ run, and the ratio COMPRESSIBLE
+    // data was generated for
+    @Column
+	private
+    DataMode dataMode = null;
+    @Column
+	private
+    double compressRatio = 0;
+    // blocks were written with integrity headers, and what checking them on
+    // read found, with the CPU time spent on checksums
+    @Column
+	private
+    boolean integrity = false;
+    @Column
+	private
+    long verifiedBlocks = 0;
+    @Column
+	private
+    long mismatchBlocks = 0;
+    @Column
+	private
+    long unwrittenBlocks = 0;
+    // intact blocks an earlier benchmark left in the reused test files
+    @Column
+	private
+    long staleBlocks = 0;
+    @Column
+	private
+    long checksumNs = 0;
+    // the small file workload of a METADATA run: files and their size, and
+    // per operation its rate and latency in ms
+    @Column
+	private
+    int metaFiles = 0;
+    @Column
+	private
+    int metaFileSize = 0;
+    @Column
+	private
+    double createOpsSec = 0;
+    @Column
+	private
+    double createLat50 = 0;
+    @Column
+	private
+    double createLat99 = 0;
+    @Column
+	private
+    double statOpsSec = 0;
+    @Column
+	private
+    double statLat50 = 0;
+    @Column
+	private
+    double statLat99 = 0;
+    @Column
+	private
+    double readOpsSec = 0;
+    @Column
+	private
+    double readLat50 = 0;
+    @Column
+	private
+    double readLat99 = 0;
+    @Column
+	private
+    double deleteOpsSec = 0;
+    @Column
+	private
+    double deleteLat50 = 0;
+    @Column
+	private
+    double deleteLat99 = 0;
+    // how writes were made durable, blocks between forces for the FORCE
+    // policies, and the latency of the separate sync calls in ms
+    @Column
+	private
+    SyncPolicy syncPolicy = null;
+    @Column
+	private
+    int syncEvery = 0;
+    @Column
+	private
+    long syncCount = 0;
+    @Column
+	private
+    double syncLat50 = 0;
+    @Column
+	private
+    double syncLat90 = 0;
+    @Column
+	private
+    double syncLat99 = 0;
+    @Column
+	private
+    double syncLatMax = 0;
+    // seed of the block order, repeats a random run exactly
+    @Column
+	private
+    long seed = 0;
+    // share of blocks read in a READ_WRITE run
+    @Column
+	private
+    int readPercent = 0;
     @Column
 	private
     int numMarks = 0;
@@ -60,6 +197,7 @@ public class DiskRun implements Serializable {
     @Column
 	private
     int blockSize = 0;
+    // the configured transfer size in KB, totalBytes has what was moved
     @Column
 	private
     long txSize = 0;
@@ -72,6 +210,45 @@ public class DiskRun implements Serializable {
     Date endTime = null;
     @Column
     int totalMarks = 0;
+    // leading marks left out of the results, and the first mark of the
+    // window where the bandwidth became steady, -1 if it never did
+    @Column
+	private
+    int warmupMarks = 0;
+    @Column
+	private
+    int steadyStateMark = -1;
+    // 95% confidence interval of the mean bandwidth of the measured marks,
+    // as a half width in MB/s and in percent of the mean, and its target
+    @Column
+	private
+    double ciHalfWidth = 0;
+    @Column
+	private
+    double ciPercent = 0;
+    @Column
+	private
+    double ciTargetPercent = 0;
+    // throughput sampled every sampleMs during the run, packed by
+    // ThroughputSampler.toBytes; stored as RunSamples so listing runs never
+    // reads it, see findThroughput
+    @Column
+	private
+    int sampleMs = 0;
+    @Transient
+	private
+    byte[] throughput = null;
+    // target time per mark of a time bounded run, 0 for fixed size marks
+    @Column
+	private
+    int markTimeMs = 0;
+    // bytes actually transferred and the time the marks took
+    @Column
+	private
+    long totalBytes = 0;
+    @Column
+	private
+    long elapsedNs = 0;
     @Column
 	private
     double runMin = 0;
@@ -81,6 +258,22 @@ public class DiskRun implements Serializable {
     @Column
 	private
     double runAvg = 0;
+    // block latency percentiles over the whole run in ms
+    @Column
+	private
+    double lat50 = 0;
+    @Column
+	private
+    double lat90 = 0;
+    @Column
+	private
+    double lat99 = 0;
+    @Column
+	private
+    double lat999 = 0;
+    @Column
+	private
+    double latMax = 0;
     
     @Override
     public String toString() {
@@ -127,6 +320,128 @@ public class DiskRun implements Serializable {
         setRunAvg(avg);
     }
 
+    /**
+     * Formats a latency in ms for display.
+     * @param latency the latency in ms
+     * @return the formatted latency
+     */
+    public static String formatLatency(double latency) {
+        return LAT_DF.format(latency);
+    }
+    
+    /**
+     * Returns the IO mode, with the read/write split for mixed runs,
+     * eg. READ_WRITE 70/30.
+     * @return the IO mode string
+     */
+    public String getIoModeString() {
+        if (getIoMode() == IOMode.READ_WRITE) {
+            return getIoMode() + " " + getReadPercent() + "/" + (100 - getReadPercent());
+        }
+        return String.valueOf(getIoMode());
+    }
+    
+    /**
+     * Returns how the test files were preallocated, and when they were not
+     * how many marks wrote into a file that had to grow.
+     * @return the preallocation string
+     */
+    public String getPreallocationString() {
+        if (getPreallocation() == PreallocMode.NONE && getGrowingMarks() > 0) {
+            return getGrowingMarks() + " growing";
+        }
+        return String.valueOf(getPreallocation());
+    }
+    
+    /**
+     * Returns what the run wrote, with the target ratio of compressible
+     * data, eg. COMPRESSIBLE 2.0:1, or - - for a READ run.
+     * @return the data string
+     */
+    public String getDataString() {
+        if (getDataMode() == null) {
+            return "- -";
+        }
+        if (getDataMode() == DataMode.COMPRESSIBLE) {
+            return getDataMode() + " " + getCompressRatio() + ":1";
+        }
+        return String.valueOf(getDataMode());
+    }
+    
+    /**
+     * Returns what checking the integrity of the blocks found, eg. 4096 ok
+     * or 3 bad of 4096, 12 stale, stamped for a run that only wrote checked
+     * blocks, or - - when integrity checking was off.
+     * @return the integrity string
+     */
+    public String getIntegrityString() {
+        if (!isIntegrity()) {
+            return "- -";
+        }
+        if (getVerifiedBlocks() == 0 && getUnwrittenBlocks() == 0 && getStaleBlocks() == 0) {
+            return "stamped";
+        }
+        String result = getMismatchBlocks() == 0 ? getVerifiedBlocks() + " ok"
+                : getMismatchBlocks() + " bad of " + getVerifiedBlocks();
+        if (getUnwrittenBlocks() > 0) {
+            result += ", " + getUnwrittenBlocks() + " unwritten";
+        }
+        if (getStaleBlocks() > 0) {
+            result += ", " + getStaleBlocks() + " stale";
+        }
+        return result;
+    }
+    
+    /**
+     * Returns how writes were made durable, eg. FORCE_DATA/16 for a force
+     * every 16 blocks, or - - for a READ run.
+     * @return the sync string
+     */
+    public String getSyncString() {
+        if (getSyncPolicy() == null) {
+            return "- -";
+        }
+        if (getSyncPolicy() == SyncPolicy.FORCE_DATA || getSyncPolicy() == SyncPolicy.FORCE_ALL) {
+            return getSyncPolicy() + "/" + getSyncEvery();
+        }
+        return String.valueOf(getSyncPolicy());
+    }
+    
+    /**
+     * Returns the rates of a METADATA run, eg. create 5200, stat 91000,
+     * read 30000, delete 8100 ops/s, or - - for the other runs.
+     * @return the metadata string
+     */
+    public String getMetadataString() {
+        if (getIoMode() != IOMode.METADATA) {
+            return "- -";
+        }
+        return "create " + Math.round(getCreateOpsSec()) + ", stat " + Math.round(getStatOpsSec())
+                + ", read " + Math.round(getReadOpsSec()) + ", delete "
+                + Math.round(getDeleteOpsSec()) + " ops/s";
+    }
+    
+    /**
+     * Returns the 95% confidence interval of the mean bandwidth, eg. +-2.5%,
+     * or - - when the run has too few marks for one.
+     * @return the interval string
+     */
+    public String getCiString() {
+        if (getCiPercent() <= 0 || Double.isNaN(getCiPercent())) {
+            return "- -";
+        }
+        return "\u00b1" + DF.format(getCiPercent()) + "%";
+    }
+    
+    /**
+     * Returns the queue depth and thread count in the usual QnTn notation,
+     * eg. Q32T16 for 16 threads each with 32 requests outstanding.
+     * @return the queue and thread string
+     */
+    public String getQueueThreads() {
+        return "Q" + getQueueDepth() + "T" + getNumThreads();
+    }
+
     /**
      * Returns how long the disk took to run, or tells you it does not know
      * how long it took because it has no end time
@@ -164,9 +479,115 @@ public class DiskRun implements Serializable {
         return em.createNamedQuery("DiskRun.findAll", DiskRun.class).getResultList();
     }
     
+    /**
+     * Fields the runs can be sorted by in the database.
+     */
+    public static final List<String> SORT_FIELDS = Arrays.asList("id",
+            "parallelFiles", "numMarks", "numBlocks", "blockSize", "txSize",
+            "startTime", "runMax", "runMin", "runAvg", "lat50", "lat90",
+            "lat99", "lat999", "latMax", "syncLat99");
+    
+    /**
+     * Sort fields whose columns were added after runs were first stored, with
+     * the value a run stored before then is read with. Their columns are null
+     * for those runs, which would fall out of the seek past the run before a
+     * page, so they are sorted by this value instead, the one the table shows.
+     */
+    private static final Map<String, String> NULL_AS = Map.of(
+            "parallelFiles", "1", "lat50", "0", "lat90", "0", "lat99", "0",
+            "lat999", "0", "latMax", "0", "syncLat99", "0");
+    
+    /**
+     * @param em entity manager to query with
+     * @param filter text the disk info must contain, any case, empty for all
+     * @return number of runs matching the filter
+     */
+    public static long count(EntityManager em, String filter) {
+        TypedQuery<Long> query = em.createQuery(
+                "SELECT COUNT(d) FROM DiskRun d" + where(filter, null), Long.class);
+        setFilter(query, filter);
+        return query.getSingleResult();
+    }
+    
+    /**
+     * One page of the runs in the order of a field, then of their id. Given
+     * the sort value and id of the last run of the page before, the page is
+     * found through the order by seeking past that run (keyset pagination),
+     * so the database does not count its way through every run before it.
+     * Without them the first offset runs are skipped instead.
+     * @param em entity manager to query with
+     * @param filter text the disk info must contain, any case, empty for all
+     * @param sortField one of SORT_FIELDS
+     * @param ascending direction of the order
+     * @param afterValue sort value of the run before the page, or null
+     * @param afterId id of the run before the page, or null to use offset
+     * @param offset runs skipped when afterId is null
+     * @param limit most runs returned
+     * @return the runs of the page
+     */
+    public static List<DiskRun> findPage(EntityManager em, String filter,
+            String sortField, boolean ascending, Object afterValue, Long afterId,
+            int offset, int limit) {
+        if (!SORT_FIELDS.contains(sortField)) {
+            throw new IllegalArgumentException("cannot sort by " + sortField);
+        }
+        String dir = ascending ? " ASC" : " DESC";
+        String cmp = ascending ? " > " : " < ";
+        String key = NULL_AS.containsKey(sortField)
+                ? "COALESCE(d." + sortField + ", " + NULL_AS.get(sortField) + ")"
+                : "d." + sortField;
+        String seek = null;
+        if (afterId != null) {
+            seek = sortField.equals("id") ? "d.id" + cmp + ":afterId"
+                    : "(" + key + cmp + ":after OR (" + key
+                    + " = :after AND d.id" + cmp + ":afterId))";
+        }
+        TypedQuery<DiskRun> query = em.createQuery("SELECT d FROM DiskRun d"
+                + where(filter, seek) + " ORDER BY " + key + dir
+                + (sortField.equals("id") ? "" : ", d.id" + dir), DiskRun.class);
+        setFilter(query, filter);
+        if (afterId != null) {
+            query.setParameter("afterId", afterId);
+            if (!sortField.equals("id")) {
+                query.setParameter("after", afterValue);
+            }
+        } else {
+            query.setFirstResult(offset);
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+    
+    private static String where(String filter, String seek) {
+        List<String> conditions = new ArrayList<>();
+        if (filter != null && !filter.isEmpty()) {
+            conditions.add("LOWER(d.diskInfo) LIKE :filter");
+        }
+        if (seek != null) {
+            conditions.add(seek);
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+    
+    private static void setFilter(TypedQuery<?> query, String filter) {
+        if (filter != null && !filter.isEmpty()) {
+            query.setParameter("filter", "%" + filter.toLowerCase() + "%");
+        }
+    }
+    
+    /**
+     * @param em entity manager to query with
+     * @param runId id of a stored run
+     * @return the run's throughput samples, null if it has none
+     */
+    public static byte[] findThroughput(EntityManager em, long runId) {
+        RunSamples samples = em.find(RunSamples.class, runId);
+        return samples == null ? null : samples.getThroughput();
+    }
+    
     public static int deleteAll() {
         EntityManager em = EM.getEntityManager();
         em.getTransaction().begin();
+        em.createQuery("DELETE FROM RunSamples").executeUpdate();
         int deletedCount = em.createQuery("DELETE FROM DiskRun").executeUpdate();
         em.getTransaction().commit();
         return deletedCount;
@@ -188,6 +609,398 @@ public class DiskRun implements Serializable {
 		this.blockOrder = blockOrder;
 	}
 
+	public EngineType getEngine() {
+		return engine;
+	}
+
+	public void setEngine(EngineType engine) {
+		this.engine = engine;
+	}
+
+	public boolean isCacheBypassed() {
+		return cacheBypassed;
+	}
+
+	public void setCacheBypassed(boolean cacheBypassed) {
+		this.cacheBypassed = cacheBypassed;
+	}
+
+	public int getNumThreads() {
+		return numThreads;
+	}
+
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+
+	public int getQueueDepth() {
+		return queueDepth;
+	}
+
+	public void setQueueDepth(int queueDepth) {
+		this.queueDepth = queueDepth;
+	}
+
+	public int getTotalMarks() {
+		return totalMarks;
+	}
+
+	public void setTotalMarks(int totalMarks) {
+		this.totalMarks = totalMarks;
+	}
+
+	public int getWarmupMarks() {
+		return warmupMarks;
+	}
+
+	public void setWarmupMarks(int warmupMarks) {
+		this.warmupMarks = warmupMarks;
+	}
+
+	public int getSteadyStateMark() {
+		return steadyStateMark;
+	}
+
+	public void setSteadyStateMark(int steadyStateMark) {
+		this.steadyStateMark = steadyStateMark;
+	}
+
+	public double getCiHalfWidth() {
+		return ciHalfWidth;
+	}
+
+	public void setCiHalfWidth(double ciHalfWidth) {
+		this.ciHalfWidth = ciHalfWidth;
+	}
+
+	public double getCiPercent() {
+		return ciPercent;
+	}
+
+	public void setCiPercent(double ciPercent) {
+		this.ciPercent = ciPercent;
+	}
+
+	public double getCiTargetPercent() {
+		return ciTargetPercent;
+	}
+
+	public void setCiTargetPercent(double ciTargetPercent) {
+		this.ciTargetPercent = ciTargetPercent;
+	}
+
+	public int getSampleMs() {
+		return sampleMs;
+	}
+
+	public void setSampleMs(int sampleMs) {
+		this.sampleMs = sampleMs;
+	}
+
+	public byte[] getThroughput() {
+		return throughput;
+	}
+
+	public void setThroughput(byte[] throughput) {
+		this.throughput = throughput;
+	}
+
+	public int getMarkTimeMs() {
+		return markTimeMs;
+	}
+
+	public void setMarkTimeMs(int markTimeMs) {
+		this.markTimeMs = markTimeMs;
+	}
+
+	public long getTotalBytes() {
+		return totalBytes;
+	}
+
+	public void setTotalBytes(long totalBytes) {
+		this.totalBytes = totalBytes;
+	}
+
+	public long getElapsedNs() {
+		return elapsedNs;
+	}
+
+	public void setElapsedNs(long elapsedNs) {
+		this.elapsedNs = elapsedNs;
+	}
+
+	public PreallocMode getPreallocation() {
+		return preallocation;
+	}
+
+	public void setPreallocation(PreallocMode preallocation) {
+		this.preallocation = preallocation;
+	}
+
+	public DataMode getDataMode() {
+		return dataMode;
+	}
+
+	public void setDataMode(DataMode dataMode) {
+		this.dataMode = dataMode;
+	}
+
+	public double getCompressRatio() {
+		return compressRatio;
+	}
+
+	public void setCompressRatio(double compressRatio) {
+		this.compressRatio = compressRatio;
+	}
+
+	public boolean isIntegrity() {
+		return integrity;
+	}
+
+	public void setIntegrity(boolean integrity) {
+		this.integrity = integrity;
+	}
+
+	public long getVerifiedBlocks() {
+		return verifiedBlocks;
+	}
+
+	public void setVerifiedBlocks(long verifiedBlocks) {
+		this.verifiedBlocks = verifiedBlocks;
+	}
+
+	public long getMismatchBlocks() {
+		return mismatchBlocks;
+	}
+
+	public void setMismatchBlocks(long mismatchBlocks) {
+		this.mismatchBlocks = mismatchBlocks;
+	}
+
+	public long getUnwrittenBlocks() {
+		return unwrittenBlocks;
+	}
+
+	public void setUnwrittenBlocks(long unwrittenBlocks) {
+		this.unwrittenBlocks = unwrittenBlocks;
+	}
+
+	public long getStaleBlocks() {
+		return staleBlocks;
+	}
+
+	public void setStaleBlocks(long staleBlocks) {
+		this.staleBlocks = staleBlocks;
+	}
+
+	public long getChecksumNs() {
+		return checksumNs;
+	}
+
+	public void setChecksumNs(long checksumNs) {
+		this.checksumNs = checksumNs;
+	}
+
+	public SyncPolicy getSyncPolicy() {
+		return syncPolicy;
+	}
+
+	public void setSyncPolicy(SyncPolicy syncPolicy) {
+		this.syncPolicy = syncPolicy;
+	}
+
+	public int getSyncEvery() {
+		return syncEvery;
+	}
+
+	public void setSyncEvery(int syncEvery) {
+		this.syncEvery = syncEvery;
+	}
+
+	public long getSyncCount() {
+		return syncCount;
+	}
+
+	public void setSyncCount(long syncCount) {
+		this.syncCount = syncCount;
+	}
+
+	public double getSyncLat50() {
+		return syncLat50;
+	}
+
+	public void setSyncLat50(double syncLat50) {
+		this.syncLat50 = syncLat50;
+	}
+
+	public double getSyncLat90() {
+		return syncLat90;
+	}
+
+	public void setSyncLat90(double syncLat90) {
+		this.syncLat90 = syncLat90;
+	}
+
+	public double getSyncLat99() {
+		return syncLat99;
+	}
+
+	public void setSyncLat99(double syncLat99) {
+		this.syncLat99 = syncLat99;
+	}
+
+	public double getSyncLatMax() {
+		return syncLatMax;
+	}
+
+	public void setSyncLatMax(double syncLatMax) {
+		this.syncLatMax = syncLatMax;
+	}
+
+	public int getParallelFiles() {
+		return parallelFiles;
+	}
+
+	public void setParallelFiles(int parallelFiles) {
+		this.parallelFiles = parallelFiles;
+	}
+
+	public int getMetaFiles() {
+		return metaFiles;
+	}
+
+	public void setMetaFiles(int metaFiles) {
+		this.metaFiles = metaFiles;
+	}
+
+	public int getMetaFileSize() {
+		return metaFileSize;
+	}
+
+	public void setMetaFileSize(int metaFileSize) {
+		this.metaFileSize = metaFileSize;
+	}
+
+	public double getCreateOpsSec() {
+		return createOpsSec;
+	}
+
+	public void setCreateOpsSec(double createOpsSec) {
+		this.createOpsSec = createOpsSec;
+	}
+
+	public double getCreateLat50() {
+		return createLat50;
+	}
+
+	public void setCreateLat50(double createLat50) {
+		this.createLat50 = createLat50;
+	}
+
+	public double getCreateLat99() {
+		return createLat99;
+	}
+
+	public void setCreateLat99(double createLat99) {
+		this.createLat99 = createLat99;
+	}
+
+	public double getStatOpsSec() {
+		return statOpsSec;
+	}
+
+	public void setStatOpsSec(double statOpsSec) {
+		this.statOpsSec = statOpsSec;
+	}
+
+	public double getStatLat50() {
+		return statLat50;
+	}
+
+	public void setStatLat50(double statLat50) {
+		this.statLat50 = statLat50;
+	}
+
+	public double getStatLat99() {
+		return statLat99;
+	}
+
+	public void setStatLat99(double statLat99) {
+		this.statLat99 = statLat99;
+	}
+
+	public double getReadOpsSec() {
+		return readOpsSec;
+	}
+
+	public void setReadOpsSec(double readOpsSec) {
+		this.readOpsSec = readOpsSec;
+	}
+
+	public double getReadLat50() {
+		return readLat50;
+	}
+
+	public void setReadLat50(double readLat50) {
+		this.readLat50 = readLat50;
+	}
+
+	public double getReadLat99() {
+		return readLat99;
+	}
+
+	public void setReadLat99(double readLat99) {
+		this.readLat99 = readLat99;
+	}
+
+	public double getDeleteOpsSec() {
+		return deleteOpsSec;
+	}
+
+	public void setDeleteOpsSec(double deleteOpsSec) {
+		this.deleteOpsSec = deleteOpsSec;
+	}
+
+	public double getDeleteLat50() {
+		return deleteLat50;
+	}
+
+	public void setDeleteLat50(double deleteLat50) {
+		this.deleteLat50 = deleteLat50;
+	}
+
+	public double getDeleteLat99() {
+		return deleteLat99;
+	}
+
+	public void setDeleteLat99(double deleteLat99) {
+		this.deleteLat99 = deleteLat99;
+	}
+
+	public int getGrowingMarks() {
+		return growingMarks;
+	}
+
+	public void setGrowingMarks(int growingMarks) {
+		this.growingMarks = growingMarks;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	public int getReadPercent() {
+		return readPercent;
+	}
+
+	public void setReadPercent(int readPercent) {
+		this.readPercent = readPercent;
+	}
+
 	public int getNumMarks() {
 		return numMarks;
 	}
@@ -244,6 +1057,50 @@ public class DiskRun implements Serializable {
 		this.runAvg = runAvg;
 	}
 
+	public double getLat50() {
+		return lat50;
+	}
+
+	public void setLat50(double lat50) {
+		this.lat50 = lat50;
+	}
+
+	public double getLat90() {
+		return lat90;
+	}
+
+	public void setLat90(double lat90) {
+		this.lat90 = lat90;
+	}
+
+	public double getLat99() {
+		return lat99;
+	}
+
+	public void setLat99(double lat99) {
+		this.lat99 = lat99;
+	}
+
+	public double getLat999() {
+		return lat999;
+	}
+
+	public void setLat999(double lat999) {
+		this.lat999 = lat999;
+	}
+
+	public double getLatMax() {
+		return latMax;
+	}
+
+	public void setLatMax(double latMax) {
+		this.latMax = latMax;
+	}
+
+	public Date getStartTime() {
+		return startTime;
+	}
+
 	public Date getEndTime() {
 		return endTime;
 	}
@@ -20,13 +20,29 @@ import javax.persistence.Persistence;
  */
 public class EM {   //TODO  Come up with a better name (besides EntityManager  :-)  
     
+    private static EntityManagerFactory emf = null;
     private static EntityManager em = null;
     
-    public static EntityManager getEntityManager() {
+    public static synchronized EntityManager getEntityManager() {
         if (em == null) {
-            EntityManagerFactory emf = Persistence.createEntityManagerFactory("jDiskMarkPU");
-            em = emf.createEntityManager();
+            em = getFactory().createEntityManager();
         }
         return em;
     }
+    
+    /**
+     * A new entity manager of its own, for a thread that reads the runs
+     * while others store them. Entity managers are not thread safe, so it
+     * must only ever be used by that one thread, which closes it when done.
+     */
+    public static synchronized EntityManager createEntityManager() {
+        return getFactory().createEntityManager();
+    }
+    
+    private static EntityManagerFactory getFactory() {
+        if (emf == null) {
+            emf = Persistence.createEntityManagerFactory("jDiskMarkPU");
+        }
+        return emf;
+    }
 }
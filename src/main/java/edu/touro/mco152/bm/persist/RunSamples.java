@@ -0,0 +1,45 @@
+package edu.touro.mco152.bm.persist;
+
+import java.io.Serializable;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+
+/**
+ * The throughput samples of a stored run, in a table of their own so the
+ * queries that page through the runs never read them. EclipseLink only
+ * loads a field lazily when the classes are woven, which this build does
+ * not do, so a lazy column of DiskRun would still come with every row.
+ */
+@Entity
+@Table(name="RunSamples")
+public class RunSamples implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // id of the run the samples were taken in
+    @Id
+    @Column
+    long runId;
+    @Lob
+    @Column
+    byte[] throughput = null;
+
+    public RunSamples() {
+    }
+
+    public RunSamples(long runId, byte[] throughput) {
+        this.runId = runId;
+        this.throughput = throughput;
+    }
+
+    public long getRunId() {
+        return runId;
+    }
+
+    public byte[] getThroughput() {
+        return throughput;
+    }
+}
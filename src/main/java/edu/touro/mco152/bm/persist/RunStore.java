@@ -0,0 +1,235 @@
+package edu.touro.mco152.bm.persist;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+
+import edu.touro.mco152.bm.App;
+import edu.touro.mco152.bm.EventLog;
+
+/**
+ * Stores finished runs in the database behind the backs of the benchmarks.
+ * Storing a run only puts it on a bounded queue, a writer thread of its own
+ * with an entity manager of its own takes whatever has queued up and stores
+ * it in a single transaction, so a slow commit does not hold up the next
+ * phase, and benchmarks on any number of threads can store runs at once.
+ * Only when the queue is full, the database having stopped keeping up, does
+ * storing a run wait for room; a run is worth more than the phase's timing.
+ *
+ * A run must not be changed once it is handed over. Each run's callback is
+ * called on the writer thread after its transaction and is told whether the
+ * run was stored, only a stored run has its id. Runs that could not be
+ * stored are counted, see getFailures.
+ */
+public class RunStore {
+
+    public static final int DEFAULT_CAPACITY = 256;
+    /** most runs stored in one transaction */
+    static final int MAX_BATCH = 64;
+
+    private static final class Pending {
+        final DiskRun run;
+        final BiConsumer<DiskRun, Boolean> done;
+        boolean stored = false;
+
+        Pending(DiskRun run, BiConsumer<DiskRun, Boolean> done) {
+            this.run = run;
+            this.done = done;
+        }
+    }
+
+    private final BlockingQueue<Pending> queue;
+    // the current writer, one that is replaced stops once the queue is empty
+    private volatile Thread writer = null;
+    // runs handed over and runs dealt with, stored or failed
+    private long submitted = 0;
+    private long done = 0;
+    private long failures = 0;
+
+    /**
+     * @param capacity most runs waiting for the writer
+     */
+    public RunStore(int capacity) {
+        queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Queue a run to be stored, starting the writer with the first one.
+     * Returns at once unless the queue is full, which only happens when the
+     * database has stopped keeping up; it then blocks until there is room
+     * rather than lose the run. Interrupted meanwhile, the run is given up
+     * and counts as failed.
+     * @param run the finished run
+     * @param done called with the run and true once it is stored, or false
+     * if storing it failed
+     */
+    public void store(DiskRun run, BiConsumer<DiskRun, Boolean> done) {
+        synchronized (this) {
+            if (writer == null) {
+                writer = new Thread(this::write, "run-store");
+                writer.setDaemon(true);
+                writer.start();
+            }
+            submitted++;
+        }
+        Pending pending = new Pending(run, done);
+        if (!queue.offer(pending)) {
+            App.eventLog.log(EventLog.Severity.WARNING,
+                    "the database is falling behind, waiting to store the run");
+            try {
+                queue.put(pending);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                App.eventLog.log(EventLog.Severity.WARNING,
+                        "interrupted waiting for the database, the run is not stored");
+                finished(pending);
+            }
+        }
+    }
+
+    private void write() {
+        EntityManager em = null;
+        List<Pending> batch = new ArrayList<>(MAX_BATCH);
+        while (writer == Thread.currentThread() || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException ex) {
+                continue;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            try {
+                if (em == null) {
+                    em = EM.createEntityManager();
+                }
+            } catch (RuntimeException ex) {
+                Logger.getLogger(App.class.getName()).log(Level.SEVERE, null, ex);
+            }
+            persist(em, batch);
+            batch.clear();
+        }
+        if (em != null) {
+            em.close();
+        }
+    }
+
+    /**
+     * Store a batch in one transaction. Should that fail the runs are tried
+     * one by one, so one bad run does not cost the others.
+     */
+    private void persist(EntityManager em, List<Pending> batch) {
+        if (em != null && !commit(em, batch) && batch.size() > 1) {
+            for (Pending pending : batch) {
+                commit(em, List.of(pending));
+            }
+        }
+        // without an entity manager nothing is stored
+        for (Pending pending : batch) {
+            finished(pending);
+        }
+    }
+
+    private boolean commit(EntityManager em, List<Pending> batch) {
+        EntityTransaction tx = em.getTransaction();
+        try {
+            tx.begin();
+            for (Pending pending : batch) {
+                em.persist(pending.run);
+            }
+            // the samples are stored under the run's id, which the insert sets
+            em.flush();
+            for (Pending pending : batch) {
+                if (pending.run.getThroughput() != null) {
+                    em.persist(new RunSamples(pending.run.getId(), pending.run.getThroughput()));
+                }
+            }
+            tx.commit();
+            for (Pending pending : batch) {
+                pending.stored = true;
+            }
+            return true;
+        } catch (RuntimeException ex) {
+            Logger.getLogger(App.class.getName()).log(Level.SEVERE, null, ex);
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            return false;
+        } finally {
+            // stored runs are not read back here, the context need not grow
+            em.clear();
+        }
+    }
+
+    private void finished(Pending pending) {
+        try {
+            if (pending.done != null) {
+                pending.done.accept(pending.run, pending.stored);
+            }
+        } catch (RuntimeException ex) {
+            Logger.getLogger(App.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        synchronized (this) {
+            if (!pending.stored) {
+                failures++;
+            }
+            done++;
+            notifyAll();
+        }
+    }
+
+    /**
+     * @return runs that could not be stored since the store was created
+     */
+    public synchronized long getFailures() {
+        return failures;
+    }
+
+    /**
+     * Wait until every run handed over so far is stored, or failed to be,
+     * and its callback called, eg. before the runs are read or deleted.
+     */
+    public synchronized void flush() {
+        long target = submitted;
+        boolean interrupted = false;
+        while (done < target && writer != null) {
+            try {
+                wait();
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Store what is left, close the entity manager and stop the writer.
+     * Runs stored afterwards start a new writer.
+     */
+    public void shutdown() {
+        Thread t;
+        synchronized (this) {
+            flush();
+            t = writer;
+            writer = null;
+        }
+        if (t != null) {
+            try {
+                t.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package edu.touro.mco152.bm.ui;
+
+import java.util.Arrays;
+
+import org.jfree.data.xy.XYSeries;
+
+/**
+ * One line of the chart. Every point added is kept here at full resolution,
+ * the chart is given a view of the visible stretch of them reduced to about
+ * one point per pixel. Adding points only marks the series changed, the view
+ * is brought up to date by refresh, once per frame at most.
+ *
+ * The view is rebuilt from the points in the visible range only. While the
+ * range keeps its start and points are only appended, the part of the view
+ * made from settled buckets stays as it is and only the tail is redone, so a
+ * long run costs about the same per frame as a short one. A min/max bucket
+ * is settled once it is complete, an LTTB bucket once the one after it is.
+ */
+public class ChartSeries {
+
+    /**
+     * How a stretch with more points than pixels is reduced.
+     */
+    public enum Reduction {
+        /** keeps the shape of the line, for the marks and their metrics */
+        LTTB,
+        /** keeps every extreme, for samples where a short stall matters */
+        MIN_MAX;
+    }
+
+    private final XYSeries view;
+    private final Reduction reduction;
+    private double[] xs = new double[64];
+    private double[] ys = new double[64];
+    private int size = 0;
+    private boolean changed = false;
+    private double[] out = new double[0];
+    // what the view was last built from
+    private int viewFrom = 0;
+    private int viewTo = 0;
+    private int viewBucket = 0;
+    private int viewPoints = 0;
+    // view items made from complete buckets, appending leaves these alone
+    private int viewSettled = 0;
+
+    /**
+     * @param name shown in the legend
+     * @param reduction how to reduce a stretch with more points than pixels
+     */
+    public ChartSeries(String name, Reduction reduction) {
+        // points are added in order, so the view never has to sort
+        view = new XYSeries(name, false, true);
+        // the chart is told about all changes of a frame at once instead
+        view.setNotify(false);
+        this.reduction = reduction;
+    }
+
+    /**
+     * @return the series the chart draws
+     */
+    public XYSeries getView() {
+        return view;
+    }
+
+    /**
+     * Add a point, kept in x order.
+     */
+    public void add(double x, double y) {
+        if (size == xs.length) {
+            xs = Arrays.copyOf(xs, size * 2);
+            ys = Arrays.copyOf(ys, size * 2);
+        }
+        int i = size;
+        if (size > 0 && x < xs[size - 1]) {
+            // rare, eg. marks numbered again after a reset of the sequence
+            i = indexOf(x);
+            System.arraycopy(xs, i, xs, i + 1, size - i);
+            System.arraycopy(ys, i, ys, i + 1, size - i);
+            viewTo = 0;
+        }
+        xs[i] = x;
+        ys[i] = y;
+        size++;
+        changed = true;
+    }
+
+    /**
+     * Remove every point.
+     */
+    public void clear() {
+        size = 0;
+        viewTo = 0;
+        changed = true;
+    }
+
+    /**
+     * @return points kept, which may be more than the view shows
+     */
+    public int getCount() {
+        return size;
+    }
+
+    /**
+     * @return true if points were added or removed since the last refresh
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+
+    /**
+     * @return index of the first point with an x of at least the given one
+     */
+    int indexOf(double x) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (xs[mid] < x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Bring the view up to date for the visible range. Nothing is done when
+     * neither the points, the range nor the width changed since last time.
+     * The view does not notify its dataset, that is up to the caller.
+     * @param all true to show every point, eg. while the axis ranges itself
+     * @param lower lowest x visible, unless all is set
+     * @param upper highest x visible, unless all is set
+     * @param pixels width available to draw the range in
+     * @return true if the view changed
+     */
+    public boolean refresh(boolean all, double lower, double upper, int pixels) {
+        changed = false;
+        if (size == 0 && view.getItemCount() == 0) {
+            return false;
+        }
+        int from = 0;
+        int to = size;
+        if (!all) {
+            // one more point each side so the lines run off the edges
+            from = Math.max(0, indexOf(lower) - 1);
+            to = Math.min(size, indexOf(Math.nextUp(upper)) + 1);
+        }
+        int points = Math.max(16, pixels);
+        int bucket = bucketSize(to - from, points);
+        boolean appended = viewTo > 0 && from == viewFrom && to >= viewTo
+                && bucket == viewBucket && points == viewPoints;
+        if (appended && to == viewTo) {
+            return false;
+        }
+        if (out.length < (to - from) * 2) {
+            out = new double[Math.max((to - from) * 2, out.length * 2)];
+        }
+        if (appended) {
+            // the settled buckets already in the view stay, the rest of
+            // the stretch is added after them
+            if (view.getItemCount() > viewSettled) {
+                view.delete(viewSettled, view.getItemCount() - 1);
+            }
+            if (reduction == Reduction.LTTB) {
+                addLttb(from, to, bucket, viewSettled);
+            } else {
+                int start = from + (viewTo - from) / bucket * bucket;
+                addBuckets(start, to, bucket, from);
+            }
+        } else {
+            view.clear();
+            viewSettled = 0;
+            if (reduction == Reduction.LTTB) {
+                addLttb(from, to, bucket, 0);
+            } else {
+                addBuckets(from, to, bucket, from);
+            }
+        }
+        viewFrom = from;
+        viewTo = to;
+        viewBucket = bucket;
+        viewPoints = points;
+        return true;
+    }
+
+    /**
+     * Add the min/max buckets of start..to-1 to the view, noting how many
+     * view items the complete ones make up.
+     */
+    private void addBuckets(int start, int to, int bucket, int from) {
+        int complete = from + (to - from) / bucket * bucket;
+        addToView(Downsampler.minMax(xs, ys, start, complete, bucket, out));
+        viewSettled = view.getItemCount();
+        addToView(Downsampler.minMax(xs, ys, complete, to, bucket, out));
+    }
+
+    /**
+     * Add the LTTB points of the buckets from firstBucket on to the view,
+     * which holds one point for each bucket before it, noting how many
+     * buckets are settled.
+     */
+    private void addLttb(int from, int to, int bucket, int firstBucket) {
+        double ax = 0;
+        double ay = 0;
+        if (firstBucket > 0) {
+            ax = view.getX(firstBucket - 1).doubleValue();
+            ay = view.getY(firstBucket - 1).doubleValue();
+        }
+        addToView(Downsampler.lttb(xs, ys, from, to, bucket, firstBucket, ax, ay, out));
+        // a bucket's point is settled once the bucket after it is complete
+        viewSettled = Math.max(0, (to - from) / bucket - 1);
+    }
+
+    /**
+     * Points per bucket, a power of two so it only changes each time the
+     * stretch doubles.
+     */
+    private int bucketSize(int n, int points) {
+        int bucket = 1;
+        int perBucket = reduction == Reduction.MIN_MAX ? 2 : 1;
+        while ((long) (n + bucket - 1) / bucket * perBucket > points) {
+            bucket *= 2;
+        }
+        return bucket;
+    }
+
+    private void addToView(int kept) {
+        for (int i=0; i<kept; i++) {
+            view.add(out[i * 2], out[i * 2 + 1], false);
+        }
+    }
+}
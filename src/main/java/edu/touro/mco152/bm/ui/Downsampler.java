@@ -0,0 +1,115 @@
+package edu.touro.mco152.bm.ui;
+
+/**
+ * Reduces a stretch of points to about as many as there are pixels to draw
+ * them in. Both methods read the points from..to-1 of arrays sorted by x and
+ * write the points they keep to out as x,y pairs, returning how many they
+ * kept. out must hold two doubles for every point that can be kept.
+ */
+final class Downsampler {
+
+    private Downsampler() {
+    }
+
+    /**
+     * Largest Triangle Three Buckets, over buckets of bucketSize points so
+     * the buckets stay put as points are appended. The first point and the
+     * last point are kept. Every bucket in between keeps the point forming
+     * the largest triangle with the point kept before it and the average of
+     * the next bucket, which keeps the shape of the line, peaks included.
+     * A bucket's point is settled once the bucket after it is complete, so
+     * the buckets from firstBucket on can be redone on their own, given the
+     * point kept for the bucket before.
+     * @param firstBucket bucket to start at, 0 for all of them
+     * @param ax x of the point kept for the bucket before firstBucket
+     * @param ay y of that point
+     * @return points kept, one per bucket from firstBucket on
+     */
+    static int lttb(double[] xs, double[] ys, int from, int to, int bucketSize,
+            int firstBucket, double ax, double ay, double[] out) {
+        int buckets = (to - from + bucketSize - 1) / bucketSize;
+        int kept = 0;
+        for (int i=firstBucket; i<buckets; i++) {
+            int start = from + i * bucketSize;
+            int end = Math.min(start + bucketSize, to);
+            int next = start;
+            if (i == buckets - 1) {
+                next = to - 1;
+            } else if (i > 0) {
+                // average of the next bucket, which may not be complete yet
+                int avgEnd = Math.min(end + bucketSize, to);
+                double avgX = 0;
+                double avgY = 0;
+                for (int j=end; j<avgEnd; j++) {
+                    avgX += xs[j];
+                    avgY += ys[j];
+                }
+                avgX /= avgEnd - end;
+                avgY /= avgEnd - end;
+
+                double maxArea = -1;
+                for (int j=start; j<end; j++) {
+                    // twice the area, only the comparison matters
+                    double area = Math.abs((ax - avgX) * (ys[j] - ay)
+                            - (ax - xs[j]) * (avgY - ay));
+                    if (area > maxArea) {
+                        maxArea = area;
+                        next = j;
+                    }
+                }
+            }
+            out[kept * 2] = xs[next];
+            out[kept * 2 + 1] = ys[next];
+            kept++;
+            ax = xs[next];
+            ay = ys[next];
+        }
+        return kept;
+    }
+
+    /**
+     * Min/max buckets. The points are taken bucketSize at a time and the
+     * lowest and highest point of each bucket are kept in the order they
+     * came, so a dip lasting a single sample still shows.
+     * @return points kept, at most two per bucket
+     */
+    static int minMax(double[] xs, double[] ys, int from, int to, int bucketSize,
+            double[] out) {
+        if (bucketSize <= 1) {
+            return copy(xs, ys, from, to, out);
+        }
+        int kept = 0;
+        for (int start=from; start<to; start+=bucketSize) {
+            int end = Math.min(start + bucketSize, to);
+            int min = start;
+            int max = start;
+            for (int j=start+1; j<end; j++) {
+                if (ys[j] < ys[min]) {
+                    min = j;
+                }
+                if (ys[j] > ys[max]) {
+                    max = j;
+                }
+            }
+            int first = Math.min(min, max);
+            int second = Math.max(min, max);
+            out[kept * 2] = xs[first];
+            out[kept * 2 + 1] = ys[first];
+            kept++;
+            if (second != first) {
+                out[kept * 2] = xs[second];
+                out[kept * 2 + 1] = ys[second];
+                kept++;
+            }
+        }
+        return kept;
+    }
+
+    private static int copy(double[] xs, double[] ys, int from, int to, double[] out) {
+        for (int j=from; j<to; j++) {
+            out[(j - from) * 2] = xs[j];
+            out[(j - from) * 2 + 1] = ys[j];
+        }
+        return to - from;
+    }
+}
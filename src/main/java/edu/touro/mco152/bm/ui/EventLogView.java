@@ -0,0 +1,58 @@
+package edu.touro.mco152.bm.ui;
+
+import java.util.List;
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+
+import edu.touro.mco152.bm.EventLog;
+
+/**
+ * Shows the log events in a text area that keeps only the last maxLines of
+ * them, dropping the oldest lines as new ones come in, so the document never
+ * grows past a fixed size however long the program runs. Each batch from the
+ * event log is appended with a single edit on the event dispatch thread.
+ */
+public class EventLogView implements EventLog.Sink {
+
+    private final JTextArea area;
+    private final int maxLines;
+
+    /**
+     * @param area where the events are shown
+     * @param maxLines lines kept
+     */
+    public EventLogView(JTextArea area, int maxLines) {
+        this.area = area;
+        this.maxLines = Math.max(1, maxLines);
+    }
+
+    @Override
+    public void write(List<EventLog.Event> batch) {
+        // only the lines that will stay are passed on
+        int first = Math.max(0, batch.size() - maxLines);
+        StringBuilder sb = new StringBuilder();
+        for (int i=first; i<batch.size(); i++) {
+            EventLog.Event event = batch.get(i);
+            if (event.getSeverity() != EventLog.Severity.INFO) {
+                sb.append(event.getSeverity()).append(": ");
+            }
+            sb.append(event.getMessage()).append('\n');
+        }
+        String text = sb.toString();
+        SwingUtilities.invokeLater(() -> append(text));
+    }
+
+    private void append(String text) {
+        area.append(text);
+        // the last line is the empty one after the final newline
+        int excess = area.getLineCount() - 1 - maxLines;
+        if (excess > 0) {
+            try {
+                area.replaceRange(null, 0, area.getLineStartOffset(excess));
+            } catch (BadLocationException ex) {
+                area.setText("");
+            }
+        }
+    }
+}
@@ -3,55 +3,92 @@ package edu.touro.mco152.bm.ui;
 
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.geom.Rectangle2D;
 import java.text.NumberFormat;
 import javax.swing.JProgressBar;
+import javax.swing.Timer;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.axis.NumberAxis;
+import org.jfree.chart.axis.ValueAxis;
 import org.jfree.chart.plot.PlotOrientation;
 import org.jfree.chart.plot.XYPlot;
-import org.jfree.data.xy.XYSeries;
 import org.jfree.data.xy.XYSeriesCollection;
 
 import edu.touro.mco152.bm.App;
 import edu.touro.mco152.bm.DiskMark;
+import edu.touro.mco152.bm.persist.DiskRun;
 
 /**
  * Store gui references for easy access
+ * 
+ * Marks and samples are kept at full resolution in ChartSeries, the chart
+ * draws views of them reduced to the width of the panel. The views are
+ * brought up to date by a timer once a frame, so everything added during a
+ * frame reaches the chart as a single dataset change and a single repaint.
  */
 public final class Gui {
     
+    /** time between chart updates */
+    static final int FRAME_MS = 40;
+    
     public static ChartPanel chartPanel = null;
     public static MainFrame mainFrame = null;
     public static SelectFrame selFrame = null;
-    public static XYSeries wSeries, wAvgSeries, wMaxSeries, wMinSeries;
-    public static XYSeries rSeries, rAvgSeries, rMaxSeries, rMinSeries;
+    public static ChartSeries wSeries, wAvgSeries, wMaxSeries, wMinSeries;
+    public static ChartSeries rSeries, rAvgSeries, rMaxSeries, rMinSeries;
+    public static ChartSeries wWarmupSeries, rWarmupSeries;
+    public static ChartSeries wSampleSeries, rSampleSeries;
     public static JFreeChart chart;
     public static JProgressBar progressBar = null;
     public static RunPanel runPanel = null;
     
+    private static ChartDataset dataset;
+    private static ChartSeries[] allSeries;
+    private static boolean rangeChanged = false;
+    private static int lastPixels = 0;
+    
+    /**
+     * Lets the chart be told about every change of a frame at once.
+     */
+    private static final class ChartDataset extends XYSeriesCollection {
+        private static final long serialVersionUID = 1L;
+        
+        void changed() {
+            fireDatasetChanged();
+        }
+    }
+    
     public static ChartPanel createChartPanel() {
         
-        wSeries = new XYSeries("Writes");
-        wAvgSeries = new XYSeries("Write Avg");
-        wMaxSeries = new XYSeries("Write Max");
-        wMinSeries = new XYSeries("Write Min");
+        wSeries = new ChartSeries("Writes", ChartSeries.Reduction.LTTB);
+        wAvgSeries = new ChartSeries("Write Avg", ChartSeries.Reduction.LTTB);
+        wMaxSeries = new ChartSeries("Write Max", ChartSeries.Reduction.LTTB);
+        wMinSeries = new ChartSeries("Write Min", ChartSeries.Reduction.LTTB);
         
-        rSeries = new XYSeries("Reads");
-        rAvgSeries = new XYSeries("Read Avg");
-        rMaxSeries = new XYSeries("Read Max");
-        rMinSeries = new XYSeries("Read Min");
+        rSeries = new ChartSeries("Reads", ChartSeries.Reduction.LTTB);
+        rAvgSeries = new ChartSeries("Read Avg", ChartSeries.Reduction.LTTB);
+        rMaxSeries = new ChartSeries("Read Max", ChartSeries.Reduction.LTTB);
+        rMinSeries = new ChartSeries("Read Min", ChartSeries.Reduction.LTTB);
         
-        XYSeriesCollection dataset = new XYSeriesCollection();
-        dataset.addSeries(wSeries);
-        dataset.addSeries(wAvgSeries);
-        dataset.addSeries(wMaxSeries);
-        dataset.addSeries(wMinSeries);
-        dataset.addSeries(rSeries);
-        dataset.addSeries(rAvgSeries);
-        dataset.addSeries(rMaxSeries);
-        dataset.addSeries(rMinSeries);
+        wWarmupSeries = new ChartSeries("Write Warm-up", ChartSeries.Reduction.LTTB);
+        rWarmupSeries = new ChartSeries("Read Warm-up", ChartSeries.Reduction.LTTB);
+        
+        // stalls show up as single low samples, which LTTB could drop
+        wSampleSeries = new ChartSeries("Write Samples", ChartSeries.Reduction.MIN_MAX);
+        rSampleSeries = new ChartSeries("Read Samples", ChartSeries.Reduction.MIN_MAX);
+        
+        // in the order the series are painted below
+        allSeries = new ChartSeries[] {
+            wSeries, wAvgSeries, wMaxSeries, wMinSeries,
+            rSeries, rAvgSeries, rMaxSeries, rMinSeries,
+            wWarmupSeries, rWarmupSeries, wSampleSeries, rSampleSeries
+        };
+        dataset = new ChartDataset();
+        for (ChartSeries series : allSeries) {
+            dataset.addSeries(series.getView());
+        }
         
         chart = ChartFactory.createXYLineChart(
                         "XY Chart", // Title
@@ -88,11 +125,52 @@ public final class Gui {
         plot.getRenderer().setSeriesPaint(5, Color.ORANGE);
         plot.getRenderer().setSeriesPaint(6, Color.GREEN);
         plot.getRenderer().setSeriesPaint(7, Color.RED);
+        plot.getRenderer().setSeriesPaint(8, Color.PINK);
+        plot.getRenderer().setSeriesPaint(9, Color.CYAN);
+        plot.getRenderer().setSeriesPaint(10, Color.MAGENTA);
+        plot.getRenderer().setSeriesPaint(11, Color.BLUE);
         updateLegend();
+        
+        // zooming in or out redoes the views for the new range
+        plot.getDomainAxis().addChangeListener(event -> rangeChanged = true);
+        new Timer(FRAME_MS, event -> refreshChart()).start();
         return chartPanel;
     }
     
+    /**
+     * Bring the views up to date with the points added since the last frame,
+     * the visible range and the width of the panel. Called on the event
+     * dispatch thread every FRAME_MS.
+     */
+    static void refreshChart() {
+        Rectangle2D area = chartPanel.getScreenDataArea();
+        int pixels = area.getWidth() > 0 ? (int) area.getWidth() : chartPanel.getWidth();
+        boolean changed = rangeChanged || pixels != lastPixels;
+        for (int i=0; i<allSeries.length && !changed; i++) {
+            changed = allSeries[i].isChanged();
+        }
+        if (!changed) {
+            return;
+        }
+        rangeChanged = false;
+        lastPixels = pixels;
+        ValueAxis domain = chart.getXYPlot().getDomainAxis();
+        boolean all = domain.isAutoRange();
+        boolean viewsChanged = false;
+        for (ChartSeries series : allSeries) {
+            viewsChanged |= series.refresh(all, domain.getLowerBound(),
+                    domain.getUpperBound(), pixels);
+        }
+        if (viewsChanged) {
+            dataset.changed();
+        }
+    }
+    
     public static void addWriteMark(DiskMark mark) {
+        if (mark.isWarmup()) {
+            wWarmupSeries.add(mark.getMarkNum(), mark.getBwMbSec());
+            return;
+        }
         wSeries.add(mark.getMarkNum(), mark.getBwMbSec());
         wAvgSeries.add(mark.getMarkNum(), mark.getCumAvg());
         if (App.showMaxMin) {
@@ -100,9 +178,12 @@ public final class Gui {
             wMinSeries.add(mark.getMarkNum(), mark.getCumMin());
         }
         Gui.mainFrame.refreshWriteMetrics();
-        System.out.println(mark.toString());
     }
     public static void addReadMark(DiskMark mark) {
+        if (mark.isWarmup()) {
+            rWarmupSeries.add(mark.getMarkNum(), mark.getBwMbSec());
+            return;
+        }
         rSeries.add(mark.getMarkNum(), mark.getBwMbSec());
         rAvgSeries.add(mark.getMarkNum(), mark.getCumAvg());
         if (App.showMaxMin) {
@@ -110,7 +191,18 @@ public final class Gui {
             rMinSeries.add(mark.getMarkNum(), mark.getCumMin());
         }
         Gui.mainFrame.refreshReadMetrics();
-        System.out.println(mark.toString());
+    }
+    
+    /**
+     * Add a throughput sample taken inside a mark, mixed runs are charted
+     * with the writes.
+     */
+    public static void addSample(DiskRun.IOMode mode, double position, double mbSec) {
+        if (mode == DiskRun.IOMode.READ) {
+            rSampleSeries.add(position, mbSec);
+        } else {
+            wSampleSeries.add(position, mbSec);
+        }
     }
     
     public static void resetTestData() {
@@ -122,20 +214,39 @@ public final class Gui {
         rMaxSeries.clear();
         wMinSeries.clear();
         rMinSeries.clear();
+        wWarmupSeries.clear();
+        rWarmupSeries.clear();
+        wSampleSeries.clear();
+        rSampleSeries.clear();
         progressBar.setValue(0);
         Gui.mainFrame.refreshReadMetrics();
         Gui.mainFrame.refreshWriteMetrics();
     }
     
     public static void updateLegend() {
-        chart.getXYPlot().getRenderer().setSeriesVisibleInLegend(0, App.writeTest);
-        chart.getXYPlot().getRenderer().setSeriesVisibleInLegend(1, App.writeTest);
-        chart.getXYPlot().getRenderer().setSeriesVisibleInLegend(2, App.writeTest&&App.showMaxMin);
-        chart.getXYPlot().getRenderer().setSeriesVisibleInLegend(3, App.writeTest&&App.showMaxMin);
+        // a mixed test charts its read and write parts separately
+        boolean showWrite = App.writeTest || App.mixedTest;
+        boolean showRead = App.readTest || App.mixedTest;
+        chart.getXYPlot().getRenderer().setSeriesVisibleInLegend(0, showWrite);
+        chart.getXYPlot().getRenderer().setSeriesVisibleInLegend(1, showWrite);
+        chart.getXYPlot().getRenderer().setSeriesVisibleInLegend(2, showWrite&&App.showMaxMin);
+        chart.getXYPlot().getRenderer().setSeriesVisibleInLegend(3, showWrite&&App.showMaxMin);
+        
+        chart.getXYPlot().getRenderer().setSeriesVisibleInLegend(4, showRead);
+        chart.getXYPlot().getRenderer().setSeriesVisibleInLegend(5, showRead);
+        chart.getXYPlot().getRenderer().setSeriesVisibleInLegend(6, showRead&&App.showMaxMin);
+        chart.getXYPlot().getRenderer().setSeriesVisibleInLegend(7, showRead&&App.showMaxMin);
+        
+        boolean showWarmup = App.warmupMarks > 0 || App.waitForSteady;
+        chart.getXYPlot().getRenderer().setSeriesVisibleInLegend(8, showWrite&&showWarmup);
+        chart.getXYPlot().getRenderer().setSeriesVisibleInLegend(9, showRead&&showWarmup);
         
-        chart.getXYPlot().getRenderer().setSeriesVisibleInLegend(4, App.readTest);
-        chart.getXYPlot().getRenderer().setSeriesVisibleInLegend(5, App.readTest);
-        chart.getXYPlot().getRenderer().setSeriesVisibleInLegend(6, App.readTest&&App.showMaxMin);
-        chart.getXYPlot().getRenderer().setSeriesVisibleInLegend(7, App.readTest&&App.showMaxMin);
+        // samples go where addSample puts them, a mixed test's with the
+        // writes, so the read samples only come from the READ test
+        boolean showSamples = App.sampleMs > 0;
+        boolean writeSamples = App.writeTest || App.mixedTest;
+        boolean readSamples = App.readTest;
+        chart.getXYPlot().getRenderer().setSeriesVisibleInLegend(10, writeSamples&&showSamples);
+        chart.getXYPlot().getRenderer().setSeriesVisibleInLegend(11, readSamples&&showSamples);
     }
 }
@@ -9,8 +9,10 @@ import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.swing.ButtonGroup;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JRadioButtonMenuItem;
 import javax.swing.text.DefaultCaret;
 
 import edu.touro.mco152.bm.App;
@@ -47,8 +49,22 @@ public final class MainFrame extends javax.swing.JFrame {
         caret.setUpdatePolicy(DefaultCaret.ALWAYS_UPDATE);
         
         // init order combo box
-        orderComboBox.addItem(DiskRun.BlockSequence.SEQUENTIAL);
-        orderComboBox.addItem(DiskRun.BlockSequence.RANDOM);
+        for (DiskRun.BlockSequence sequence : DiskRun.BlockSequence.values()) {
+            orderComboBox.addItem(sequence);
+        }
+        
+        // init sync policy menu
+        ButtonGroup syncGroup = new ButtonGroup();
+        for (DiskRun.SyncPolicy policy : DiskRun.SyncPolicy.values()) {
+            JRadioButtonMenuItem item = new JRadioButtonMenuItem(policy.toString());
+            item.setSelected(policy == App.syncPolicy);
+            item.addActionListener(evt -> {
+                App.syncPolicy = policy;
+                App.saveConfig();
+            });
+            syncGroup.add(item);
+            syncMenu.add(item);
+        }
     }
 
     public JPanel getMountPanel() {
@@ -67,12 +83,18 @@ public final class MainFrame extends javax.swing.JFrame {
         autoRemoveCheckBoxMenuItem.setSelected(App.autoRemoveData);
         autoResetCheckBoxMenuItem.setSelected(App.autoReset);
         showMaxMinCheckBoxMenuItem.setSelected(App.showMaxMin);
-        writeSyncCheckBoxMenuItem.setSelected(App.writeSyncEnable);
+        for (java.awt.Component item : syncMenu.getMenuComponents()) {
+            JRadioButtonMenuItem policyItem = (JRadioButtonMenuItem) item;
+            policyItem.setSelected(policyItem.getText().equals(String.valueOf(App.syncPolicy)));
+        }
+        verifyDataCheckBoxMenuItem.setSelected(App.verifyData);
         
         String modeStr = "unset";
         if      (!App.readTest && App.writeTest) { modeStr = "write"; }
         else if (App.readTest && !App.writeTest) { modeStr = "read"; }
         else if (App.readTest && App.writeTest) { modeStr = "write&read"; }
+        else if (App.mixedTest) { modeStr = "mixed"; }
+        else if (App.metadataTest) { modeStr = "metadata"; }
         else { msg("WARNING: invalid mode detected"); }
         modeCombo.setSelectedItem(modeStr);
         
@@ -150,7 +172,8 @@ public final class MainFrame extends javax.swing.JFrame {
         autoRemoveCheckBoxMenuItem = new javax.swing.JCheckBoxMenuItem();
         autoResetCheckBoxMenuItem = new javax.swing.JCheckBoxMenuItem();
         showMaxMinCheckBoxMenuItem = new javax.swing.JCheckBoxMenuItem();
-        writeSyncCheckBoxMenuItem = new javax.swing.JCheckBoxMenuItem();
+        syncMenu = new javax.swing.JMenu();
+        verifyDataCheckBoxMenuItem = new javax.swing.JCheckBoxMenuItem();
         helpMenu = new javax.swing.JMenu();
         jMenuItem2 = new javax.swing.JMenuItem();
 
@@ -182,7 +205,7 @@ public final class MainFrame extends javax.swing.JFrame {
         jLabel3.setText("Write Avg");
 
         numBlocksCombo.setEditable(true);
-        numBlocksCombo.setModel(new javax.swing.DefaultComboBoxModel(new String[] { "1", "2", "3", "4", "8", "16", "32", "64", "128", "256", "512", "1024", "2048", "4096", "8192" }));
+        numBlocksCombo.setModel(new javax.swing.DefaultComboBoxModel(new String[] { "1", "2", "3", "4", "8", "16", "32", "64", "128", "256", "512", "1024", "2048", "4096", "8192", "16384", "32768", "65536", "131072" }));
         numBlocksCombo.setSelectedIndex(6);
         numBlocksCombo.addActionListener(new java.awt.event.ActionListener() {
             public void actionPerformed(java.awt.event.ActionEvent evt) {
@@ -222,7 +245,7 @@ public final class MainFrame extends javax.swing.JFrame {
 
         jLabel4.setText("IO Mode");
 
-        modeCombo.setModel(new javax.swing.DefaultComboBoxModel(new String[] { "write", "read", "write&read" }));
+        modeCombo.setModel(new javax.swing.DefaultComboBoxModel(new String[] { "write", "read", "write&read", "mixed", "metadata" }));
         modeCombo.addActionListener(new java.awt.event.ActionListener() {
             public void actionPerformed(java.awt.event.ActionEvent evt) {
                 modeComboActionPerformed(evt);
@@ -560,14 +583,16 @@ public final class MainFrame extends javax.swing.JFrame {
         });
         optionMenu.add(showMaxMinCheckBoxMenuItem);
 
-        writeSyncCheckBoxMenuItem.setSelected(true);
-        writeSyncCheckBoxMenuItem.setText("Write Sync");
-        writeSyncCheckBoxMenuItem.addActionListener(new java.awt.event.ActionListener() {
+        syncMenu.setText("Write Sync");
+        optionMenu.add(syncMenu);
+
+        verifyDataCheckBoxMenuItem.setText("Verify Data");
+        verifyDataCheckBoxMenuItem.addActionListener(new java.awt.event.ActionListener() {
             public void actionPerformed(java.awt.event.ActionEvent evt) {
-                writeSyncCheckBoxMenuItemActionPerformed(evt);
+                verifyDataCheckBoxMenuItemActionPerformed(evt);
             }
         });
-        optionMenu.add(writeSyncCheckBoxMenuItem);
+        optionMenu.add(verifyDataCheckBoxMenuItem);
 
         jMenuBar1.add(optionMenu);
 
@@ -656,6 +681,8 @@ public final class MainFrame extends javax.swing.JFrame {
         String modeStr = (String) modeCombo.getSelectedItem();
         App.readTest = modeStr.contains("read");
         App.writeTest = modeStr.contains("write");
+        App.mixedTest = modeStr.equals("mixed");
+        App.metadataTest = modeStr.equals("metadata");
     }//GEN-LAST:event_modeComboActionPerformed
 
     private void jMenuItem1ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jMenuItem1ActionPerformed
@@ -710,10 +737,11 @@ public final class MainFrame extends javax.swing.JFrame {
         App.blockSequence = (DiskRun.BlockSequence) orderComboBox.getSelectedItem();
     }//GEN-LAST:event_orderComboBoxActionPerformed
 
-    private void writeSyncCheckBoxMenuItemActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_writeSyncCheckBoxMenuItemActionPerformed
-        App.writeSyncEnable = writeSyncCheckBoxMenuItem.getState();
+
+    private void verifyDataCheckBoxMenuItemActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_verifyDataCheckBoxMenuItemActionPerformed
+        App.verifyData = verifyDataCheckBoxMenuItem.getState();
         App.saveConfig();
-    }//GEN-LAST:event_writeSyncCheckBoxMenuItemActionPerformed
+    }//GEN-LAST:event_verifyDataCheckBoxMenuItemActionPerformed
 
     private void clearRunsItemActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_clearRunsItemActionPerformed
         App.msg("Clearing previous runs.");
@@ -775,12 +803,13 @@ public final class MainFrame extends javax.swing.JFrame {
     private edu.touro.mco152.bm.ui.RunPanel runPanel;
     private javax.swing.JCheckBoxMenuItem showMaxMinCheckBoxMenuItem;
     private javax.swing.JButton startButton;
+    private javax.swing.JMenu syncMenu;
     private javax.swing.JTabbedPane tabbedPane;
     private javax.swing.JProgressBar totalTxProgBar;
+    private javax.swing.JCheckBoxMenuItem verifyDataCheckBoxMenuItem;
     private javax.swing.JLabel wAvgLabel;
     private javax.swing.JLabel wMaxLabel;
     private javax.swing.JLabel wMinLabel;
-    private javax.swing.JCheckBoxMenuItem writeSyncCheckBoxMenuItem;
     // End of variables declaration//GEN-END:variables
 
     public void setLocation(String path ) {
@@ -788,13 +817,15 @@ public final class MainFrame extends javax.swing.JFrame {
     }
     
     public void msg(String message) {
-        msgTextArea.append(message+'\n');
+        App.msg(message);
     }
   
     public void applyTestParams() {
         String modeStr = (String) modeCombo.getSelectedItem();
         App.readTest = modeStr.contains("read");
         App.writeTest = modeStr.contains("write");
+        App.mixedTest = modeStr.equals("mixed");
+        App.metadataTest = modeStr.equals("metadata");
         App.blockSequence = (DiskRun.BlockSequence)orderComboBox.getSelectedItem();
         App.numOfMarks = Integer.valueOf((String) numFilesCombo.getSelectedItem());
         App.numOfBlocks = Integer.valueOf((String) numBlocksCombo.getSelectedItem());
@@ -827,6 +858,10 @@ public final class MainFrame extends javax.swing.JFrame {
         return totalTxProgBar;
     }
     
+    public javax.swing.JTextArea getMsgTextArea() {
+        return msgTextArea;
+    }
+    
     public void clearMessages() {
         msgTextArea.setText("");
     }
@@ -7,17 +7,27 @@ package edu.touro.mco152.bm.ui;
 
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
-import javax.swing.table.DefaultTableModel;
-
-import edu.touro.mco152.bm.persist.DiskRun;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.TableColumn;
 
 /**
- * This class creates a panel, runs it, and clears the table
+ * This class creates a panel showing the stored runs, read page by page
+ * from the database as they are scrolled to
  * @author Ezra Koppel
  */
 public class RunPanel extends javax.swing.JPanel {
 
 	private static final long serialVersionUID = 1L;
+	// typing is let settle before the runs are queried again
+	private static final int FILTER_DELAY_MS = 300;
+
+    private final RunTableModel model = new RunTableModel();
+    private final Timer filterTimer;
 
     /**
      * Creates new form TestPanel
@@ -26,6 +36,36 @@ public class RunPanel extends javax.swing.JPanel {
         initComponents();
         Gui.runPanel = RunPanel.this;
         
+        // sorted and filtered by the database, see RunTableModel
+        runTable.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = runTable.columnAtPoint(e.getPoint());
+                if (column >= 0) {
+                    model.sortBy(runTable.convertColumnIndexToModel(column));
+                    refreshHeader();
+                }
+            }
+        });
+        filterTimer = new Timer(FILTER_DELAY_MS, e -> model.setFilter(filterField.getText()));
+        filterTimer.setRepeats(false);
+        filterField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                filterTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                filterTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                filterTimer.restart();
+            }
+        });
+        
         // auto scroll to bottom when a new record is added
         runTable.addComponentListener(new ComponentAdapter() {
             @Override
@@ -43,40 +83,45 @@ public class RunPanel extends javax.swing.JPanel {
     // <editor-fold defaultstate="collapsed" desc="Generated Code">//GEN-BEGIN:initComponents
     private void initComponents() {
 
+        filterLabel = new javax.swing.JLabel();
+        filterField = new javax.swing.JTextField();
         jScrollPane1 = new javax.swing.JScrollPane();
         runTable = new javax.swing.JTable();
 
-        runTable.setModel(new javax.swing.table.DefaultTableModel(
-            new Object [][] {
+        filterLabel.setText("Disk info filter:");
 
-            },
-            new String [] {
-                "Disk Info", "IO Mode", "Block Order", "Marks", "Blocks", "B. Size", "Tx Size", "Start Time", "Duration", "Max (MB/s)", "Min (MB/s)", "Avg (MB/s)"
-            }
-        ) {
-            private static final long serialVersionUID = 1L;
-            boolean[] canEdit = new boolean [] {
-                false, false, false, false, false, false, false, false, false, false, false, false
-            };
-
-            public boolean isCellEditable(int rowIndex, int columnIndex) {
-                return canEdit [columnIndex];
-            }
-        });
+        filterField.setToolTipText("show only the runs whose disk info contains this text");
+
+        runTable.setModel(model);
         jScrollPane1.setViewportView(runTable);
         if (runTable.getColumnModel().getColumnCount() > 0) {
             runTable.getColumnModel().getColumn(0).setPreferredWidth(35);
             runTable.getColumnModel().getColumn(1).setPreferredWidth(25);
             runTable.getColumnModel().getColumn(2).setPreferredWidth(50);
-            runTable.getColumnModel().getColumn(3).setPreferredWidth(7);
-            runTable.getColumnModel().getColumn(4).setPreferredWidth(10);
-            runTable.getColumnModel().getColumn(5).setPreferredWidth(10);
-            runTable.getColumnModel().getColumn(6).setPreferredWidth(10);
-            runTable.getColumnModel().getColumn(7).setPreferredWidth(100);
-            runTable.getColumnModel().getColumn(8).setPreferredWidth(20);
-            runTable.getColumnModel().getColumn(9).setPreferredWidth(32);
-            runTable.getColumnModel().getColumn(10).setPreferredWidth(32);
-            runTable.getColumnModel().getColumn(11).setPreferredWidth(32);
+            runTable.getColumnModel().getColumn(3).setPreferredWidth(40);
+            runTable.getColumnModel().getColumn(4).setPreferredWidth(20);
+            runTable.getColumnModel().getColumn(5).setPreferredWidth(50);
+            runTable.getColumnModel().getColumn(6).setPreferredWidth(7);
+            runTable.getColumnModel().getColumn(7).setPreferredWidth(10);
+            runTable.getColumnModel().getColumn(8).setPreferredWidth(10);
+            runTable.getColumnModel().getColumn(9).setPreferredWidth(10);
+            runTable.getColumnModel().getColumn(10).setPreferredWidth(80);
+            runTable.getColumnModel().getColumn(11).setPreferredWidth(110);
+            runTable.getColumnModel().getColumn(12).setPreferredWidth(110);
+            runTable.getColumnModel().getColumn(13).setPreferredWidth(110);
+            runTable.getColumnModel().getColumn(14).setPreferredWidth(260);
+            runTable.getColumnModel().getColumn(15).setPreferredWidth(100);
+            runTable.getColumnModel().getColumn(16).setPreferredWidth(20);
+            runTable.getColumnModel().getColumn(17).setPreferredWidth(32);
+            runTable.getColumnModel().getColumn(18).setPreferredWidth(32);
+            runTable.getColumnModel().getColumn(19).setPreferredWidth(32);
+            runTable.getColumnModel().getColumn(20).setPreferredWidth(60);
+            runTable.getColumnModel().getColumn(21).setPreferredWidth(32);
+            runTable.getColumnModel().getColumn(22).setPreferredWidth(32);
+            runTable.getColumnModel().getColumn(23).setPreferredWidth(32);
+            runTable.getColumnModel().getColumn(24).setPreferredWidth(32);
+            runTable.getColumnModel().getColumn(25).setPreferredWidth(32);
+            runTable.getColumnModel().getColumn(26).setPreferredWidth(90);
         }
 
         javax.swing.GroupLayout layout = new javax.swing.GroupLayout(this);
@@ -85,13 +130,22 @@ public class RunPanel extends javax.swing.JPanel {
             layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
             .addGroup(layout.createSequentialGroup()
                 .addContainerGap()
-                .addComponent(jScrollPane1, javax.swing.GroupLayout.DEFAULT_SIZE, 789, Short.MAX_VALUE)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
+                    .addComponent(jScrollPane1, javax.swing.GroupLayout.DEFAULT_SIZE, 789, Short.MAX_VALUE)
+                    .addGroup(layout.createSequentialGroup()
+                        .addComponent(filterLabel)
+                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                        .addComponent(filterField, javax.swing.GroupLayout.PREFERRED_SIZE, 200, javax.swing.GroupLayout.PREFERRED_SIZE)))
                 .addContainerGap())
         );
         layout.setVerticalGroup(
             layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
             .addGroup(layout.createSequentialGroup()
                 .addContainerGap()
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(filterLabel)
+                    .addComponent(filterField, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                 .addComponent(jScrollPane1, javax.swing.GroupLayout.DEFAULT_SIZE, 118, Short.MAX_VALUE)
                 .addContainerGap())
         );
@@ -99,33 +153,30 @@ public class RunPanel extends javax.swing.JPanel {
 
 
     // Variables declaration - do not modify//GEN-BEGIN:variables
+    private javax.swing.JTextField filterField;
+    private javax.swing.JLabel filterLabel;
     private javax.swing.JScrollPane jScrollPane1;
     private javax.swing.JTable runTable;
     // End of variables declaration//GEN-END:variables
 
-    public void addRun(DiskRun run) {
-        DefaultTableModel model = (DefaultTableModel) this.runTable.getModel();
-        model.addRow(
-                new Object[] {
-                    run.getDiskInfo(),
-                    run.getIoMode(),
-                    run.getBlockOrder(),
-                    run.getNumMarks(),
-                    run.getNumBlocks(),
-                    run.getBlockSize(),
-                    run.getTxSize(),
-                    run.getStartTimeString(),
-                    run.getDuration(),
-                    run.getMax(),
-                    run.getMin(),
-                    run.getAvg(),
-                });
+    /**
+     * Read the stored runs again, eg. after one was added or all were
+     * deleted. Returns at once, the rows come in as the table shows them.
+     * Safe to call from any thread.
+     */
+    public void reload() {
+        if (SwingUtilities.isEventDispatchThread()) {
+            model.reload();
+        } else {
+            SwingUtilities.invokeLater(model::reload);
+        }
     }
-    
-    public void clearTable() {
-        DefaultTableModel model = (DefaultTableModel) this.runTable.getModel();
-        while (model.getRowCount() > 0) {
-            model.removeRow(0);
+
+    private void refreshHeader() {
+        for (int i=0; i<runTable.getColumnCount(); i++) {
+            TableColumn column = runTable.getColumnModel().getColumn(i);
+            column.setHeaderValue(model.getColumnName(column.getModelIndex()));
         }
+        runTable.getTableHeader().repaint();
     }
 }
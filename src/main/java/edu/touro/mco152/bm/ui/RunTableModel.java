@@ -0,0 +1,290 @@
+package edu.touro.mco152.bm.ui;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.persistence.EntityManager;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+
+import edu.touro.mco152.bm.App;
+import edu.touro.mco152.bm.persist.DiskRun;
+import edu.touro.mco152.bm.persist.EM;
+
+/**
+ * The stored runs as a table that only holds the rows being looked at. Rows
+ * are read from the database a page at a time when the table first asks for
+ * them and the last CACHED_PAGES pages are kept. Sorting and filtering are
+ * done by the queries, the table only ever sees the rows in their order.
+ *
+ * All queries run on a thread of their own with an entity manager of its
+ * own, the table is shown straight away with its rows blank until their page
+ * comes in. Every method is called on the event dispatch thread.
+ */
+public class RunTableModel extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+    static final int PAGE_SIZE = 100;
+    static final int CACHED_PAGES = 8;
+
+    /**
+     * One column, how its value is shown and, if it can be sorted, the field
+     * it is sorted by and that field's value.
+     */
+    private static final class Column {
+        final String name;
+        final Function<DiskRun, Object> value;
+        final String sortField;
+        final Function<DiskRun, Object> key;
+
+        Column(String name, Function<DiskRun, Object> value) {
+            this(name, value, null, null);
+        }
+
+        Column(String name, Function<DiskRun, Object> value, String sortField,
+                Function<DiskRun, Object> key) {
+            this.name = name;
+            this.value = value;
+            this.sortField = sortField;
+            this.key = key;
+        }
+    }
+
+    private static final Column[] COLUMNS = {
+        new Column("Disk Info", DiskRun::getDiskInfo),
+        new Column("IO Mode", DiskRun::getIoModeString),
+        new Column("Block Order", DiskRun::getBlockOrder),
+        new Column("Engine", DiskRun::getEngine),
+        new Column("Q/T", DiskRun::getQueueThreads),
+        new Column("Files", DiskRun::getParallelFiles, "parallelFiles", DiskRun::getParallelFiles),
+        new Column("Marks", DiskRun::getNumMarks, "numMarks", DiskRun::getNumMarks),
+        new Column("Blocks", DiskRun::getNumBlocks, "numBlocks", DiskRun::getNumBlocks),
+        new Column("B. Size", DiskRun::getBlockSize, "blockSize", DiskRun::getBlockSize),
+        new Column("Tx Size", DiskRun::getTxSize, "txSize", DiskRun::getTxSize),
+        new Column("Prealloc", DiskRun::getPreallocationString),
+        new Column("Data", DiskRun::getDataString),
+        new Column("Integrity", DiskRun::getIntegrityString),
+        new Column("Sync", DiskRun::getSyncString),
+        new Column("Metadata", DiskRun::getMetadataString),
+        new Column("Start Time", DiskRun::getStartTimeString, "startTime", DiskRun::getStartTime),
+        new Column("Duration", DiskRun::getDuration),
+        new Column("Max (MB/s)", DiskRun::getMax, "runMax", DiskRun::getRunMax),
+        new Column("Min (MB/s)", DiskRun::getMin, "runMin", DiskRun::getRunMin),
+        new Column("Avg (MB/s)", DiskRun::getAvg, "runAvg", DiskRun::getRunAvg),
+        new Column("95% CI", DiskRun::getCiString),
+        new Column("p50 (ms)", run -> DiskRun.formatLatency(run.getLat50()), "lat50", DiskRun::getLat50),
+        new Column("p90 (ms)", run -> DiskRun.formatLatency(run.getLat90()), "lat90", DiskRun::getLat90),
+        new Column("p99 (ms)", run -> DiskRun.formatLatency(run.getLat99()), "lat99", DiskRun::getLat99),
+        new Column("p99.9 (ms)", run -> DiskRun.formatLatency(run.getLat999()), "lat999", DiskRun::getLat999),
+        new Column("Max Lat (ms)", run -> DiskRun.formatLatency(run.getLatMax()), "latMax", DiskRun::getLatMax),
+        new Column("Sync p99 (ms)", run -> run.getSyncCount() > 0
+                ? DiskRun.formatLatency(run.getSyncLat99()) : "- -", "syncLat99", DiskRun::getSyncLat99),
+    };
+
+    // a single thread, so the count of a reload is in before its pages
+    private final transient ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "run-loader");
+        t.setDaemon(true);
+        return t;
+    });
+    // only used on the loader thread
+    private transient EntityManager em = null;
+
+    private String filter = "";
+    // -1 for the order the runs were stored in
+    private int sortColumn = -1;
+    private boolean ascending = true;
+    private int rowCount = 0;
+    // bumped by every reload, pages of an earlier one are thrown away
+    private int generation = 0;
+    // least recently used first
+    private final Map<Integer, List<DiskRun>> pages = new LinkedHashMap<Integer, List<DiskRun>>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<DiskRun>> eldest) {
+            return size() > CACHED_PAGES;
+        }
+    };
+    // sort value and id of the last run of each page read, where the next
+    // page starts; two small objects a page, kept while the order holds
+    private final Map<Integer, Object[]> pageEnds = new HashMap<>();
+    private final Set<Integer> loading = new HashSet<>();
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    /**
+     * @return the column name, with an arrow on the one sorted by
+     */
+    @Override
+    public String getColumnName(int column) {
+        if (column == sortColumn) {
+            return COLUMNS[column].name + (ascending ? " \u25B2" : " \u25BC");
+        }
+        return COLUMNS[column].name;
+    }
+
+    /**
+     * @return the value, or null while the row's page is being read
+     */
+    @Override
+    public Object getValueAt(int row, int column) {
+        int page = row / PAGE_SIZE;
+        List<DiskRun> runs = pages.get(page);
+        if (runs == null) {
+            load(page);
+            return null;
+        }
+        int i = row % PAGE_SIZE;
+        // the page may have come in shorter if runs were deleted meanwhile
+        return i < runs.size() ? COLUMNS[column].value.apply(runs.get(i)) : null;
+    }
+
+    /**
+     * @return true if the runs can be sorted by the column
+     */
+    public boolean isSortable(int column) {
+        return COLUMNS[column].sortField != null;
+    }
+
+    /**
+     * Sort by the column, or the other way round if already sorted by it.
+     * Columns that cannot be sorted go back to the order the runs were
+     * stored in.
+     */
+    public void sortBy(int column) {
+        if (!isSortable(column)) {
+            sortColumn = -1;
+            ascending = true;
+        } else if (column == sortColumn) {
+            ascending = !ascending;
+        } else {
+            sortColumn = column;
+            ascending = true;
+        }
+        reload();
+    }
+
+    /**
+     * Show only the runs whose disk info contains the text, in any case.
+     * @param text the text, empty to show every run
+     */
+    public void setFilter(String text) {
+        String trimmed = text == null ? "" : text.trim();
+        if (!trimmed.equals(filter)) {
+            filter = trimmed;
+            reload();
+        }
+    }
+
+    /**
+     * Forget the rows read so far and count the runs again, eg. after runs
+     * were stored or deleted. Returns at once, the table is told the new
+     * row count once it is known and reads the rows it shows from there.
+     */
+    public void reload() {
+        int gen = ++generation;
+        pages.clear();
+        pageEnds.clear();
+        loading.clear();
+        String f = filter;
+        loader.execute(() -> {
+            try {
+                long count = DiskRun.count(entityManager(), f);
+                SwingUtilities.invokeLater(() -> counted(gen, count));
+            } catch (RuntimeException ex) {
+                Logger.getLogger(App.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        });
+    }
+
+    private void counted(int gen, long count) {
+        if (gen != generation) {
+            return;
+        }
+        rowCount = (int) Math.min(count, Integer.MAX_VALUE);
+        fireTableDataChanged();
+    }
+
+    /**
+     * Read a page on the loader thread. When the page before was read its
+     * last run is where this one starts, otherwise, eg. when the table is
+     * scrolled straight to the end, the runs before the page are skipped.
+     */
+    private void load(int page) {
+        if (!loading.add(page)) {
+            return;
+        }
+        int gen = generation;
+        String f = filter;
+        String sortField = sortColumn < 0 ? "id" : COLUMNS[sortColumn].sortField;
+        boolean asc = ascending;
+        Object[] after = pageEnds.get(page - 1);
+        loader.execute(() -> {
+            try {
+                EntityManager reader = entityManager();
+                List<DiskRun> runs = after != null
+                        ? DiskRun.findPage(reader, f, sortField, asc, after[0], (Long) after[1], 0, PAGE_SIZE)
+                        : DiskRun.findPage(reader, f, sortField, asc, null, null, page * PAGE_SIZE, PAGE_SIZE);
+                // the rows are only shown, letting go of them keeps the
+                // persistence context from growing with every page
+                reader.clear();
+                SwingUtilities.invokeLater(() -> loaded(gen, page, runs));
+            } catch (RuntimeException ex) {
+                Logger.getLogger(App.class.getName()).log(Level.SEVERE, null, ex);
+                SwingUtilities.invokeLater(() -> failed(gen, page));
+            }
+        });
+    }
+
+    /**
+     * A page that could not be read is not cached, the next time the table
+     * asks for one of its rows it is read again.
+     */
+    private void failed(int gen, int page) {
+        if (gen == generation) {
+            loading.remove(page);
+        }
+    }
+
+    private void loaded(int gen, int page, List<DiskRun> runs) {
+        if (gen != generation) {
+            return;
+        }
+        loading.remove(page);
+        pages.put(page, runs);
+        if (!runs.isEmpty()) {
+            DiskRun last = runs.get(runs.size() - 1);
+            Object key = sortColumn < 0 ? null : COLUMNS[sortColumn].key.apply(last);
+            pageEnds.put(page, new Object[] { key, last.getId() });
+        }
+        int first = page * PAGE_SIZE;
+        int lastRow = Math.min(rowCount, first + PAGE_SIZE) - 1;
+        if (lastRow >= first) {
+            fireTableRowsUpdated(first, lastRow);
+        }
+    }
+
+    private EntityManager entityManager() {
+        if (em == null) {
+            em = EM.createEntityManager();
+        }
+        return em;
+    }
+}
@@ -0,0 +1,89 @@
+package edu.touro.mco152.bm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.management.ThreadMXBean;
+
+import edu.touro.mco152.bm.persist.DiskRun;
+
+/**
+ * Checks that progress reporting stays off the I/O path: a slot only bumps a
+ * counter of its own, so a mark of many blocks allocates no more on the I/O
+ * thread than a mark of few, even with the progress read from another thread
+ * all the while.
+ */
+public class QueuedIoRunnerTest {
+
+    static final int BLOCK_SIZE = 4096;
+    static final int FEW_BLOCKS = 64;
+    static final int MANY_BLOCKS = 4096;
+    /** marks run first, so classes are loaded and the loop compiled */
+    static final int WARMUP_MARKS = 20;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void progressAllocatesNothingPerBlock() throws Exception {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        // a single slot runs the blocks on the calling thread
+        QueuedIoRunner runner = new QueuedIoRunner(DiskRun.EngineType.RANDOM_ACCESS_FILE,
+                1, 1, 1, new ByteBuffer[] { ByteBuffer.allocate(BLOCK_SIZE) });
+        File file = folder.newFile("testdata.jdm");
+        int[] few = sequence(FEW_BLOCKS);
+        int[] many = sequence(MANY_BLOCKS);
+        // reports every millisecond, each one reading the slot counters
+        ProgressReporter progress = new ProgressReporter(1,
+                () -> (runner.getBlocksComplete() % 100) / 100d,
+                () -> runner.getBlocksComplete() * BLOCK_SIZE,
+                (percent, bytesDone, etaMs) -> { });
+        progress.start();
+        try {
+            for (int readPercent : new int[] { 0, 100 }) {
+                for (int i=0; i<WARMUP_MARKS; i++) {
+                    allocated(threads, runner, file, readPercent, many);
+                }
+                long fewBytes = allocated(threads, runner, file, readPercent, few);
+                long manyBytes = allocated(threads, runner, file, readPercent, many);
+                assertEquals("bytes allocated per block at " + readPercent + "% reads",
+                        0, (manyBytes - fewBytes) / (MANY_BLOCKS - FEW_BLOCKS));
+            }
+        } finally {
+            progress.shutdown();
+            runner.shutdown();
+        }
+    }
+
+    /**
+     * @return bytes the calling thread allocated running one mark
+     */
+    private static long allocated(ThreadMXBean threads, QueuedIoRunner runner, File file,
+            int readPercent, int[] blocks) throws Exception {
+        long id = Thread.currentThread().getId();
+        IoStats readStats = new IoStats();
+        IoStats writeStats = new IoStats();
+        long before = threads.getThreadAllocatedBytes(id);
+        runner.runMark(file, readPercent, blocks, readStats, writeStats, () -> false);
+        return threads.getThreadAllocatedBytes(id) - before;
+    }
+
+    private static int[] sequence(int n) {
+        int[] blocks = new int[n];
+        for (int i=0; i<n; i++) {
+            blocks[i] = i;
+        }
+        return blocks;
+    }
+}